@@ -1,9 +1,6 @@
 package ie.atu.sw;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.*;
@@ -13,7 +10,8 @@ import java.util.concurrent.*;
  * excludes common words the index is of their occurrences in the text only.
  * Extends IndexSetup. The text, dictionary and stop words are to be <b>supplied
  * by the user</b> using setter methods of IndexSetup. Class is intended to be
- * operated from the <b>user interface Menu</b>.
+ * operated from the <b>user interface Menu</b> and can be built again after its
+ * files or options change.
  * 
  * A concrete implementation of <code>Indexer.interface</code> and
  * <code>IndexSetup.class</code>.
@@ -29,9 +27,7 @@ import java.util.concurrent.*;
  *
  */
 public class AlternateIndexBuilder extends IndexSetup {
-	private ConcurrentSkipListMap<String, WordDetail> index = new ConcurrentSkipListMap<>();// thread safe map
-	private int lineCounter;// counter as each line is parsed
-	private int page = 1;// page number, one page = 40 lines
+	private Set<String> stopWords = Set.of();// stop words, shared with other builders until changed
 
 	/**
 	 * Constructor of the AlternateIndexBuilder class, creates a new instance of the
@@ -50,69 +46,51 @@ public class AlternateIndexBuilder extends IndexSetup {
 	 * @see #setOutputFile(String)
 	 */
 	public void buildIndex() {// O(n) as all methods called are also O(n)
-		int progress = 0;
-		int progressSize = 100;
-
-		virtualThreadParse(super.stopWordsFile, 1);
-		printProgress(progress += 20, progressSize);
-
-		virtualThreadParse(super.dictionaryFile, 2);
-		printProgress(progress += 20, progressSize);
-
-		parse(super.textFile);
-		printProgress(progress += 20, progressSize);
-
-		if (super.removeNullDefinition == true) {
-			removeNullDefinition();
-		}
-		removeNoOccurance();
-		printProgress(progress += 20, progressSize);
+		createIndex();
 
 		outputIndex();
-		printProgress(progress += 20, progressSize);
+		printProgress(100, 100);
 	}
 
 	/**
-	 * {@inheritDoc}This implementation of parse is intended for the use of parsing
-	 * the text file supplied by the user. It internally passes the parsed lines to
-	 * the processText method. Parsing of the dictionary and stop words files is
-	 * handled by buildIndex. Text File should be set first before use.
+	 * {@inheritDoc} Any previous index is discarded first. Stop words and
+	 * dictionary are taken from the cache shared by all builders and only parsed if
+	 * their files have changed.
 	 * 
-	 * @see #processText(String)
-	 * @see #buildIndex()
-	 * @see #setTextFile(String)
+	 * @see #loadStopWords(String)
+	 * @see #loadDictionary(String)
 	 */
-	public void parse(String file) {// O(n) because of loop
-		try {
-			Files.lines(Path.of(file)).forEach(line -> processText(line));// a loop
+	public void createIndex() {// O(n) as all methods called are also O(n)
+		int progress = 0;
+		int progressSize = 100;
+		resetBuild();
 
-		} catch (Exception e) {
-			e.printStackTrace();
+		try {
+			stopWords = loadStopWords(super.stopWordsFile, super.execution);// O(1) if cached
+			for (String word : stopWords) {// a loop
+				index.put(word, new WordDetail(word));// O(log n)
+			}
+			printProgress(progress += 20, progressSize);
+
+			addDefinitions(loadDictionary(super.dictionaryFile, super.execution));
+			printProgress(progress += 20, progressSize);
+
+			parse(super.textFile);// O(n) method
+			if (super.builtPositional)
+				repaginate(super.pageModel);
+			printProgress(progress += 20, progressSize);
+		} catch (IOException e) {
+			throw publishFailure(new IndexingException("Cannot read the stop words or dictionary", e));
+		} catch (RuntimeException e) {
+			throw publishFailure(e);// O(s) method, subscribers waiting are sent the error
 		}
-	}
 
-	/*
-	 * A virtual thread variation of parse. Kept private as it calls another method
-	 * based on parameters. Knowledge of method workings required to use it. Parses
-	 * the dictionary and stop word files.
-	 * 
-	 * @param file: the file to parsed
-	 * 
-	 * @param method: the method to call
-	 */
-	private void virtualThreadParse(String file, int method) {// O(n) due to loop
-		try {
-			Files.lines(Path.of(file)).forEach(line -> Thread.startVirtualThread(() -> {// a loop
-				if (method == 1) {
-					processStopWords(line);// O(n) method
-				} else if (method == 2) {
-					processDictionary(line);// O(log n) method
-				}
-			}));
-
-		} catch (Exception e) {
-			e.printStackTrace();
+		if (super.removeNullDefinition == true) {
+			removeNullDefinition();
 		}
+		removeNoOccurance();
+		publishIndex();// O(s) method
+		printProgress(progress += 20, progressSize);
 	}
 
 	/**
@@ -120,20 +98,17 @@ public class AlternateIndexBuilder extends IndexSetup {
 	 * 
 	 * @see #setTextFile(String)
 	 */
-	public void processText(String line) {// O(n) due to loop
-		line = line.toLowerCase().trim().replaceAll("[^a-zA-Z]", " ");
-		Arrays.stream(line.split("\\s+")).forEach(word -> {// a loop
-			if (index.containsKey(word)) {// O(log n)
-				var wordDetail = index.get(word);// O(log n)
-				wordDetail.addPage(page);
-			} else {
-				return;
-			}
-		});
-		lineCounter++;
-		if (lineCounter % 40 == 0) {
-			page++;
+	protected void processWords(String line, String[] words) {// O(n) due to loop
+		startLine(line, countWords(words));
+		int offset = 0;
+		for (String word : words) {// a loop
+			var wordDetail = index.get(word);// O(log n)
+			if (wordDetail != null)
+				addOccurrence(wordDetail, offset);
+			if (!word.isEmpty())
+				offset++;
 		}
+		endLine();
 	}
 
 	/**
@@ -159,12 +134,23 @@ public class AlternateIndexBuilder extends IndexSetup {
 	 * @see #setStopWordsFile(String)
 	 */
 	public void processStopWords(String line) {// O(n) due to loop
+		if (!(stopWords instanceof ConcurrentSkipListSet))
+			stopWords = new ConcurrentSkipListSet<>(stopWords);// copied before the first change
 		Arrays.stream(line.split("\\s+")).forEach(word -> {// a loop
+			stopWords.add(word.toLowerCase());// O(log n)
 			index.put(word.toLowerCase(), new WordDetail(word.toLowerCase()));// O(log n)
 		});
 
 	}
 
+	/**
+	 * {@inheritDoc} Only stop words are indexed.
+	 */
+	@Override
+	protected ConcurrentSkipListMap<String, WordDetail> targetOf(String word) {// O(1) or O(log n) by the set
+		return stopWords.contains(word) ? index : null;
+	}
+
 	/*
 	 * Private method that removes any words from the index that had no occurrences
 	 * in the text.
@@ -206,41 +192,28 @@ public class AlternateIndexBuilder extends IndexSetup {
 	 * (a-z) or reverse order (z-a).
 	 * 
 	 * @param naturalOrder <b>true</b> for natural, <b>false</b> for reverse
+	 * @see #printAllWords(IndexOrdering)
 	 */
-	public void printAllWords(boolean naturalOrder) {// O(n) due to loop
-		var order = naturalOrder ? index.keySet() : index.descendingKeySet();
-		int counter = 0;
-		for (String string : order) {// a loop
-			System.out.print(string + ", ");
-			counter++;
-			if (counter % 5 == 0) {
-				System.out.println();
-			}
-		}
+	public void printAllWords(boolean naturalOrder) {// O(n log n / p) method
+		printAllWords(naturalOrder ? IndexOrdering.ALPHABETICAL : IndexOrdering.REVERSE_ALPHABETICAL);
 	}
 
 	/**
 	 * {@inheritDoc} Output File should be set first before use.
 	 * 
 	 * @see #setOutputFile(String)
+	 * @see #setParallelOutput(boolean)
+	 * @see #setOrdering(IndexOrdering)
 	 */
-	public void outputIndex() {// O(n) worst case due to loop
-		try (FileWriter fw = new FileWriter(new File(super.outputFile))) {
+	public void outputIndex() {// O(n) due to IndexWriter
+		try {
+			String header = null;
 			if (super.displayUniqueWordCount == true) {
-				fw.write("Total Unique Words: " + uniqueWordCount() + "\n\n");// O(n) method
-			}
-
-			Set<Entry<String, WordDetail>> keys = index.entrySet();
-			for (Entry<String, WordDetail> e : keys) {// a loop
-				var wordDetail = e.getValue();// O(log n)
-				fw.write(e.getKey() + "\n");
-				fw.write("\tDefinitions:\n");
-				fw.write("\t" + wordDetail.getDefinition() + "\n\n");
-				fw.write("\tPages:\n");
-				fw.write("\t" + wordDetail.getPages() + "\n\n");
+				header = "Total Unique Words: " + uniqueWordCount() + "\n\n";// O(n) method
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
+			writeIndex(index, header, super.outputFile);// O(n) method
+		} catch (IOException e) {
+			throw new IndexingException("Cannot write index to " + super.outputFile, e);
 		}
 	}
 }
@@ -0,0 +1,202 @@
+package ie.atu.sw;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The class AutoTuner picks the fastest execution settings for the machine and
+ * the input. The first lines of the text of a builder are copied to a sample,
+ * which is built under each candidate setting: sequential, virtual threads and
+ * ForkJoinPools of half and all of the processors, each with small, medium and
+ * large batches. The best time of a number of runs is kept for each.
+ *
+ * The stop words and dictionary are parsed once and cached before the trials,
+ * as they are for every build after the first, so the trials time the text.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#autoTune()
+ * @see ExecutionSettings
+ */
+public class AutoTuner {
+	private static final int[] BATCH_SIZES = { 256, 1024, 4096 };// lines per batch tried
+	private int sampleLines = 100_000;// lines of the text built in each trial
+	private int runs = 2;// runs of each trial, the fastest is kept
+
+	/**
+	 * The time taken to build the sample under some settings.
+	 *
+	 * @param settings the execution settings
+	 * @param nanos    the fastest run in nanoseconds
+	 */
+	public record Trial(ExecutionSettings settings, long nanos) {
+	}
+
+	/**
+	 * Constructor of the AutoTuner class, creates a tuner with the default sample
+	 * of 100,000 lines and two runs of each trial.
+	 */
+	public AutoTuner() {
+		super();
+	}
+
+	/**
+	 * Sets the number of lines of the text in the sample.
+	 *
+	 * @param sampleLines int number of lines
+	 */
+	public void setSampleLines(int sampleLines) {// O(1) one action - set
+		this.sampleLines = sampleLines;
+	}
+
+	/**
+	 * Sets the number of runs of each trial.
+	 *
+	 * @param runs int number of runs, at least 1
+	 */
+	public void setRuns(int runs) {// O(1) one action - set
+		this.runs = Math.max(1, runs);
+	}
+
+	/**
+	 * Gets the settings tried for this machine.
+	 *
+	 * @return List of candidate settings
+	 */
+	public List<ExecutionSettings> candidates() {// O(1) a fixed number of candidates
+		int cores = Runtime.getRuntime().availableProcessors();
+		Set<ExecutionSettings> candidates = new LinkedHashSet<>();
+		candidates.add(new ExecutionSettings(ExecutionStrategy.SEQUENTIAL, 1, 1024));
+		for (int batchSize : BATCH_SIZES) {// a loop
+			candidates.add(new ExecutionSettings(ExecutionStrategy.VIRTUAL_THREADS, cores, batchSize));
+			candidates.add(new ExecutionSettings(ExecutionStrategy.FORK_JOIN, Math.max(1, cores / 2), batchSize));
+			candidates.add(new ExecutionSettings(ExecutionStrategy.FORK_JOIN, cores, batchSize));
+		}
+		return new ArrayList<>(candidates);
+	}
+
+	/**
+	 * Times every candidate on a sample of the text of a builder and sets the
+	 * fastest on the builder.
+	 *
+	 * @param builder a builder with its files set
+	 * @return ExecutionSettings chosen
+	 * @throws IndexingException if a file cannot be read
+	 */
+	public ExecutionSettings tune(IndexSetup builder) {// O(c * s) candidates by sample lines
+		var best = trials(builder).get(0).settings();
+		builder.setExecution(best);
+		return best;
+	}
+
+	/**
+	 * Times every candidate on a sample of the text of a builder. The trials are
+	 * built by a new builder of the same class with the same options, so the
+	 * builder, its index, checkpoint, snapshots and subscribers are left as they
+	 * were.
+	 *
+	 * @param builder a builder with its files set
+	 * @return List of trials, fastest first
+	 * @throws IndexingException if a file cannot be read
+	 */
+	public List<Trial> trials(IndexSetup builder) {// O(c * s) candidates by sample lines
+		String textFile = builder.textFile;
+		Path sample = null;
+		try {
+			sample = sample(textFile);
+			IndexSetup trial = trialBuilder(builder, sample);
+			trial.createIndex();// O(s) method, warms the cache and the JIT
+
+			List<Trial> trials = new ArrayList<>();
+			for (var settings : candidates()) {// a loop
+				trial.setExecution(settings);
+				long fastest = Long.MAX_VALUE;
+				for (int run = 0; run < runs; run++) {// a loop
+					long start = System.nanoTime();
+					trial.createIndex();// O(s) method
+					fastest = Math.min(fastest, System.nanoTime() - start);
+				}
+				trials.add(new Trial(settings, fastest));
+			}
+			trials.sort(Comparator.comparingLong(Trial::nanos));// O(c log c)
+			return trials;
+		} catch (IOException e) {
+			throw new IndexingException("Cannot sample text file " + textFile, e);
+		} finally {
+			deleteQuietly(sample);
+		}
+	}
+
+	/*
+	 * Creates a builder of the same class as a builder, with the options that
+	 * change the work of a build copied and a sample as its text. It has no
+	 * checkpoint, snapshots or subscribers and shows no progress.
+	 *
+	 * @param builder: the builder to copy
+	 *
+	 * @param sample: the sample text
+	 */
+	private static IndexSetup trialBuilder(IndexSetup builder, Path sample) {// O(1) copies the options
+		IndexSetup trial;
+		try {
+			trial = builder.getClass().getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IndexingException("Cannot create a builder like " + builder.getClass().getSimpleName(), e);
+		}
+		trial.setStopWordsFile(builder.stopWordsFile);
+		trial.setDictionaryFile(builder.dictionaryFile);
+		trial.setTextFile(sample.toString());
+		trial.setRemoveNullDefinition(builder.removeNullDefinition);
+		trial.setDisplayUniqueWordCount(builder.displayUniqueWordCount);
+		trial.setPositional(builder.positional);
+		trial.setChangeTracking(builder.changeTracking);
+		trial.setBigrams(builder.bigrams);
+		trial.setPageModel(builder.pageModel);
+		trial.setTokenizer(builder.tokenizer);
+		trial.setShowProgress(false);
+		return trial;
+	}
+
+	/*
+	 * Copies the first lines of a text, which may be compressed, to a temporary
+	 * plain file.
+	 *
+	 * @param textFile: the file location
+	 */
+	private Path sample(String textFile) throws IOException {// O(s) where s is the amount of sample lines
+		Path sample = Files.createTempFile("tune-", ".txt");
+		try (var lines = Compression.lines(textFile);
+				BufferedWriter bw = Files.newBufferedWriter(sample, StandardCharsets.UTF_8)) {
+			var it = lines.iterator();
+			for (int i = 0; i < sampleLines && it.hasNext(); i++) {// a loop
+				bw.write(it.next());
+				bw.write('\n');
+			}
+		} catch (IOException | UncheckedIOException e) {
+			deleteQuietly(sample);
+			throw e instanceof UncheckedIOException u ? u.getCause() : (IOException) e;
+		}
+		return sample;
+	}
+
+	/*
+	 * Deletes a temporary file if there is one.
+	 *
+	 * @param file: the file, may be null
+	 */
+	private static void deleteQuietly(Path file) {// O(1) one action
+		try {
+			if (file != null)
+				Files.deleteIfExists(file);
+		} catch (IOException e) {
+			file.toFile().deleteOnExit();// try again on exit
+		}
+	}
+}
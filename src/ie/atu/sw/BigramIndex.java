@@ -0,0 +1,347 @@
+package ie.atu.sw;
+
+import java.util.*;
+
+/**
+ * The class BigramIndex records pairs of adjacent words of a text, the pages
+ * each pair occurs on and how often. Words are given int term ids and a pair is
+ * packed into a single long key, first id in the high half and second in the
+ * low half, held in an open addressing table of primitive arrays. No String is
+ * made for a pair, so a text with millions of distinct pairs fits in the heap.
+ *
+ * Pages of a pair are kept once each, in order. The first page is held in a
+ * primitive array and an int[] is only allocated for a pair on more than one
+ * page, which most are not.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#setBigrams(boolean)
+ */
+public class BigramIndex {
+	private static final long EMPTY = -1L;// key of an empty slot, term ids are never negative
+	private static final double LOAD_FACTOR = 0.6;// fraction of slots used before the table grows
+
+	private final Map<String, Integer> termIds = new HashMap<>();// term id of each word
+	private final List<String> terms = new ArrayList<>();// word of each term id
+	private long[] keys;// packed pair of each slot
+	private int[] counts;// occurrences of the pair of each slot
+	private int[] firstPages;// first page the pair of each slot occurs on
+	private int[][] morePages;// further pages of each slot, null until a second page
+	private int[] pageCounts;// distinct pages of each slot
+	private int size;// pairs in the table
+
+	/**
+	 * A pair of words with its occurrences and pages.
+	 *
+	 * @param first  the first word
+	 * @param second the second word
+	 * @param count  the number of times the pair occurs
+	 * @param pages  the pages the pair occurs on, in order
+	 */
+	public record Bigram(String first, String second, int count, int[] pages) {
+	}
+
+	/**
+	 * Constructor of the BigramIndex class, creates a new empty index.
+	 */
+	public BigramIndex() {
+		allocate(1024);
+	}
+
+	/**
+	 * Gets the term id of a word, giving it the next id if it has none.
+	 *
+	 * @param word the word
+	 * @return int term id
+	 */
+	public int termId(String word) {// O(1) hash map action
+		Integer id = termIds.get(word);
+		if (id == null) {
+			id = terms.size();
+			termIds.put(word, id);
+			terms.add(word);
+		}
+		return id;
+	}
+
+	/**
+	 * Records an occurrence of a pair of words on a page. Pages must be added in
+	 * order.
+	 *
+	 * @param first  term id of the first word
+	 * @param second term id of the second word
+	 * @param page   the page number
+	 */
+	public void add(int first, int second, int page) {// O(1) amortised, the table doubles when full
+		if (size + 1 > keys.length * LOAD_FACTOR)
+			grow();// O(n) method
+		long key = pack(first, second);
+		int slot = slotOf(key);// O(1) average
+		if (keys[slot] == EMPTY) {
+			keys[slot] = key;
+			counts[slot] = 1;
+			firstPages[slot] = page;
+			pageCounts[slot] = 1;
+			size++;
+			return;
+		}
+		counts[slot]++;
+		if (lastPage(slot) != page)
+			addPage(slot, page);// O(1) amortised
+	}
+
+	/**
+	 * Gets the number of distinct pairs.
+	 *
+	 * @return int number of pairs
+	 */
+	public int size() {// O(1) one action only
+		return size;
+	}
+
+	/**
+	 * Gets the number of times a pair of words occurs.
+	 *
+	 * @param first  the first word
+	 * @param second the second word
+	 * @return int number of occurrences, 0 if the pair never occurs
+	 */
+	public int count(String first, String second) {// O(1) average
+		int slot = find(first, second);
+		return slot < 0 ? 0 : counts[slot];
+	}
+
+	/**
+	 * Gets the pages a pair of words occurs on.
+	 *
+	 * @param first  the first word
+	 * @param second the second word
+	 * @return int[] of pages in order, empty if the pair never occurs
+	 */
+	public int[] pages(String first, String second) {// O(p) where p is the amount of pages
+		int slot = find(first, second);
+		return slot < 0 ? new int[0] : pagesOf(slot);
+	}
+
+	/**
+	 * Gets the pairs occurring most often, most frequent first then in order of
+	 * the words. Pairs occurring fewer than a minimum number of times are left
+	 * out.
+	 *
+	 * @param k        the most pairs to return
+	 * @param minCount the fewest occurrences of a pair returned
+	 * @return List of pairs
+	 */
+	public List<Bigram> top(int k, int minCount) {// O(n log k) heap of k slots
+		Comparator<Integer> order = Comparator.<Integer>comparingInt(slot -> -counts[slot])
+				.thenComparing(slot -> terms.get((int) (keys[slot] >>> 32)))
+				.thenComparing(slot -> terms.get((int) keys[slot]));// most frequent then the words
+		PriorityQueue<Integer> heap = new PriorityQueue<>(order.reversed());// the last pair in order at the head
+		for (int slot = 0; slot < keys.length && k > 0; slot++) {// a loop
+			if (keys[slot] == EMPTY || counts[slot] < minCount)
+				continue;
+			heap.add(slot);// O(log k)
+			if (heap.size() > k)
+				heap.poll();// O(log k), ties at the cut-off kept in order of the words
+		}
+		List<Integer> slots = new ArrayList<>(heap);
+		slots.sort(order);// O(k log k)
+		List<Bigram> top = new ArrayList<>(slots.size());
+		for (int slot : slots) {// a loop
+			top.add(bigramOf(slot));
+		}
+		return top;
+	}
+
+	/**
+	 * Removes every pair occurring fewer than a minimum number of times, a
+	 * frequency cut-off to keep the collocations of a text and free the rest.
+	 *
+	 * @param minCount the fewest occurrences of a pair kept
+	 * @return int number of pairs removed
+	 */
+	public int prune(int minCount) {// O(n) due to loop
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		int[] oldFirstPages = firstPages;
+		int[][] oldMorePages = morePages;
+		int[] oldPageCounts = pageCounts;
+		int before = size;
+		int kept = 0;
+		for (int slot = 0; slot < oldKeys.length; slot++) {// a loop
+			if (oldKeys[slot] != EMPTY && oldCounts[slot] >= minCount)
+				kept++;
+		}
+		allocate(Math.max(1024, Integer.highestOneBit((int) (kept / LOAD_FACTOR) + 1) * 2));
+		for (int slot = 0; slot < oldKeys.length; slot++) {// a loop
+			if (oldKeys[slot] != EMPTY && oldCounts[slot] >= minCount)
+				move(oldKeys[slot], oldCounts[slot], oldFirstPages[slot], oldMorePages[slot], oldPageCounts[slot]);
+		}
+		return before - size;
+	}
+
+	/**
+	 * Gets every pair occurring at least a number of times, in no set order.
+	 *
+	 * @param minCount the fewest occurrences of a pair returned
+	 * @return List of pairs
+	 */
+	public List<Bigram> all(int minCount) {// O(n) due to loop
+		List<Bigram> all = new ArrayList<>();
+		for (int slot = 0; slot < keys.length; slot++) {// a loop
+			if (keys[slot] != EMPTY && counts[slot] >= minCount)
+				all.add(bigramOf(slot));
+		}
+		return all;
+	}
+
+	/*
+	 * Returns the slot of a pair of words, or -1 if either word or the pair is not
+	 * in the index.
+	 *
+	 * @param first: the first word
+	 *
+	 * @param second: the second word
+	 */
+	private int find(String first, String second) {// O(1) average
+		Integer a = termIds.get(first);
+		Integer b = termIds.get(second);
+		if (a == null || b == null)
+			return -1;
+		int slot = slotOf(pack(a, b));
+		return keys[slot] == EMPTY ? -1 : slot;
+	}
+
+	/*
+	 * Returns the slot holding a key, or the empty slot where it belongs, by
+	 * linear probing from its hash.
+	 *
+	 * @param key: the packed pair
+	 */
+	private int slotOf(long key) {// O(1) average
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key) {// a loop
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/*
+	 * Returns the last page a slot occurs on.
+	 *
+	 * @param slot: the slot
+	 */
+	private int lastPage(int slot) {// O(1) one action
+		return pageCounts[slot] == 1 ? firstPages[slot] : morePages[slot][pageCounts[slot] - 2];
+	}
+
+	/*
+	 * Adds a page after the first to a slot.
+	 *
+	 * @param slot: the slot
+	 *
+	 * @param page: the page number
+	 */
+	private void addPage(int slot, int page) {// O(1) amortised, the array doubles when full
+		int[] more = morePages[slot];
+		int used = pageCounts[slot] - 1;
+		if (more == null) {
+			more = new int[2];
+		} else if (used == more.length) {
+			more = Arrays.copyOf(more, used * 2);
+		}
+		more[used] = page;
+		morePages[slot] = more;
+		pageCounts[slot]++;
+	}
+
+	/*
+	 * Returns the pages of a slot in order.
+	 *
+	 * @param slot: the slot
+	 */
+	private int[] pagesOf(int slot) {// O(p) where p is the amount of pages
+		int[] pages = new int[pageCounts[slot]];
+		pages[0] = firstPages[slot];
+		if (pages.length > 1)
+			System.arraycopy(morePages[slot], 0, pages, 1, pages.length - 1);
+		return pages;
+	}
+
+	/*
+	 * Returns the pair of a slot.
+	 *
+	 * @param slot: the slot
+	 */
+	private Bigram bigramOf(int slot) {// O(p) where p is the amount of pages
+		long key = keys[slot];
+		return new Bigram(terms.get((int) (key >>> 32)), terms.get((int) key), counts[slot], pagesOf(slot));
+	}
+
+	/*
+	 * Doubles the table and puts every pair in its slot of the new table.
+	 */
+	private void grow() {// O(n) due to loop
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		int[] oldFirstPages = firstPages;
+		int[][] oldMorePages = morePages;
+		int[] oldPageCounts = pageCounts;
+		allocate(oldKeys.length * 2);
+		for (int slot = 0; slot < oldKeys.length; slot++) {// a loop
+			if (oldKeys[slot] != EMPTY)
+				move(oldKeys[slot], oldCounts[slot], oldFirstPages[slot], oldMorePages[slot], oldPageCounts[slot]);
+		}
+	}
+
+	/*
+	 * Puts a pair from an old table into the current table.
+	 */
+	private void move(long key, int count, int firstPage, int[] more, int pageCount) {// O(1) average
+		int slot = slotOf(key);
+		keys[slot] = key;
+		counts[slot] = count;
+		firstPages[slot] = firstPage;
+		morePages[slot] = more;
+		pageCounts[slot] = pageCount;
+		size++;
+	}
+
+	/*
+	 * Replaces the table with an empty one.
+	 *
+	 * @param capacity: the number of slots, a power of two
+	 */
+	private void allocate(int capacity) {// O(n) fills the keys
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		counts = new int[capacity];
+		firstPages = new int[capacity];
+		morePages = new int[capacity][];
+		pageCounts = new int[capacity];
+		size = 0;
+	}
+
+	/*
+	 * Packs a pair of term ids into a key.
+	 */
+	private static long pack(int first, int second) {// O(1) one action
+		return (long) first << 32 | (second & 0xffffffffL);
+	}
+
+	/*
+	 * Mixes the bits of a key so that keys close together spread over the table,
+	 * the finalizer of MurmurHash3.
+	 */
+	private static int hash(long key) {// O(1) bit operations
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
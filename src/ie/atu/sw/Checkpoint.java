@@ -0,0 +1,386 @@
+package ie.atu.sw;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The record Checkpoint holds the state of a build part way through its text:
+ * the number of lines parsed, the page and line table they make, the page of
+ * each line and the partial index, or indexes for the DualIndexBuilder, each as
+ * an IndexSegment. A build resumed from it skips the lines already parsed and
+ * carries on, so it builds exactly the index of a build that was never stopped.
+ * A page model cannot be compared, so a build only resumes if its model gives
+ * every line parsed the page it was given before.
+ *
+ * A checkpoint file is a log. The first checkpoint of a build writes the file
+ * anew, to a temporary file beside it then moved over it in one step. Each
+ * checkpoint after it appends only the lines parsed since the last one, with
+ * their pages and the occurrences they add to the indexes, so saving costs the
+ * lines since the last checkpoint, not the whole build so far. Loading reads
+ * every record and merges the occurrences of each word in order. A build killed
+ * while appending leaves a torn last record, which loading drops, so the last
+ * whole checkpoint is resumed. The checkpoints of a build are saved, and the
+ * last restored, by a recorder the builder keeps while it parses.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @param stamp     the sources and options of the build, a checkpoint is only
+ *                  resumed by a build with the same
+ * @param firstLine the first line the pages and indexes hold, 0 for a loaded
+ *                  checkpoint
+ * @param page      the page of the last line parsed
+ * @param lineTable the lines parsed, one for every line of text
+ * @param pages     the page of each line parsed from the first line
+ * @param indexes   the partial indexes, the occurrences on lines from the first
+ *                  line
+ *
+ * @see IndexSetup#setCheckpoint(String, int)
+ * @see IndexSegment
+ */
+public record Checkpoint(String stamp, int firstLine, int page, LineTable lineTable, int[] pages,
+		List<SortedMap<String, WordDetail>> indexes) {
+	private static final int MAGIC = 0x49445843;// "IDXC" at the start of every checkpoint
+	private static final int VERSION = 3;// version of the format, 3 appends a record for each checkpoint
+
+	/**
+	 * Gets the number of lines of text parsed.
+	 *
+	 * @return int number of lines
+	 */
+	public int lines() {// O(1) one action
+		return lineTable.size();
+	}
+
+	/**
+	 * Returns true if a page model gives every line from the first line the page
+	 * it had when the checkpoint was saved, so the pages of the partial indexes
+	 * hold.
+	 *
+	 * @param model the page model of the build resuming
+	 * @return boolean true if the pages are the same
+	 */
+	public boolean pagedBy(PageModel model) {// O(l) where l is the amount of lines
+		for (int i = 0; i < pages.length; i++) {// a loop
+			if (model.pageOf(firstLine + i, lineTable) != pages[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Saves the checkpoint to a file. A checkpoint from the first line replaces
+	 * any checkpoint already there, a checkpoint from a later line is appended to
+	 * the checkpoints saved before it.
+	 *
+	 * @param file the checkpoint file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path file) throws IOException {// O(n) where n is the size of the lines and indexes saved
+		byte[] record = record();// O(n) method
+		if (firstLine > 0) {
+			try (var out = new DataOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND))) {
+				out.writeInt(record.length);
+				out.write(record);
+			}
+			return;
+		}
+		Path dir = file.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+		try {
+			try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+				out.write(header(stamp));
+				out.writeInt(record.length);
+				out.write(record);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/*
+	 * Writes the lines from the first line, their pages, the last page and the
+	 * indexes as one record.
+	 */
+	private byte[] record() throws IOException {// O(n) where n is the size of the lines and indexes saved
+		var bytes = new ByteArrayOutputStream();
+		try (var out = new DataOutputStream(bytes)) {
+			out.writeInt(pages.length);
+			for (int line = firstLine; line < lineTable.size(); line++) {// a loop
+				long end = line + 1 < lineTable.size() ? lineTable.offsetOf(line + 1) : lineTable.length();
+				int feeds = lineTable.formFeedsThrough(line) - (line == 0 ? 0 : lineTable.formFeedsThrough(line - 1));
+				out.writeInt((int) (end - lineTable.offsetOf(line)));
+				out.writeInt(feeds);
+				out.writeInt(lineTable.wordsOn(line));
+				out.writeInt(pages[line - firstLine]);
+			}
+			out.writeInt(page);
+			out.writeInt(indexes.size());
+			for (var index : indexes) {// a loop
+				IndexSegment.write(out, index, 0, 0);// O(n) method
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	/*
+	 * Writes the header a checkpoint file starts with.
+	 *
+	 * @param stamp: the sources and options of the build
+	 */
+	private static byte[] header(String stamp) throws IOException {// O(1) a few writes
+		var bytes = new ByteArrayOutputStream();
+		try (var out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(stamp);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Loads a checkpoint from a file, merging every checkpoint appended to it. A
+	 * torn last record, left by a build killed while saving, is dropped and cut
+	 * from the file so the next checkpoint is appended after the last whole one.
+	 *
+	 * @param file the checkpoint file
+	 * @return Checkpoint loaded, null if there is no file
+	 * @throws IOException if the file cannot be read or is not a checkpoint
+	 */
+	public static Checkpoint load(Path file) throws IOException {// O(n) where n is the size of the file
+		if (!Files.exists(file))
+			return null;
+		String stamp;
+		int page = 0;
+		LineTable lineTable = new LineTable();
+		int[] pages = new int[16];
+		List<SortedMap<String, WordDetail>> indexes = new ArrayList<>();
+		long whole;// bytes of the file up to the end of the last whole record
+		try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("not a checkpoint: " + file);
+			stamp = in.readUTF();
+			whole = header(stamp).length;
+			while (true) {// a loop, one record for each checkpoint
+				byte[] record;
+				try {
+					record = new byte[in.readInt()];
+					in.readFully(record);
+				} catch (EOFException e) {
+					break;// the end of the file, or a torn record
+				}
+				var recordIn = new DataInputStream(new ByteArrayInputStream(record));
+				int count = recordIn.readInt();
+				if (lineTable.size() + count > pages.length)
+					pages = Arrays.copyOf(pages, Math.max(pages.length * 2, lineTable.size() + count));
+				for (int i = 0; i < count; i++) {// a loop
+					int len = recordIn.readInt(), feeds = recordIn.readInt(), words = recordIn.readInt();
+					pages[lineTable.size()] = recordIn.readInt();
+					lineTable.add(len, feeds, words);
+				}
+				page = recordIn.readInt();
+				int indexCount = recordIn.readInt();
+				for (int i = 0; i < indexCount; i++) {// a loop
+					var segment = IndexSegment.read(recordIn);// O(n) method
+					if (i == indexes.size())
+						indexes.add(segment);
+					else
+						merge(indexes.get(i), segment);// O(n log n) method
+				}
+				whole += Integer.BYTES + record.length;
+			}
+		}
+		if (Files.size(file) > whole) {
+			try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(whole);
+			}
+		}
+		return new Checkpoint(stamp, 0, page, lineTable, Arrays.copyOf(pages, lineTable.size()), indexes);
+	}
+
+	/*
+	 * Merges the occurrences of a later part of the text into an index: a new
+	 * word is added, the pages and positions of a word already there are
+	 * appended to its own. Package-private, used by IndexSetup.
+	 *
+	 * @param index: the index to merge into
+	 *
+	 * @param later: the words and occurrences to merge
+	 */
+	static void merge(SortedMap<String, WordDetail> index, SortedMap<String, WordDetail> later) {// O(n log n) due to loop
+		for (var e : later.entrySet()) {// a loop
+			index.merge(e.getKey(), e.getValue(), (detail, added) -> {
+				detail.append(added);// O(p) method
+				return detail;
+			});
+		}
+	}
+
+	/*
+	 * Saves the checkpoints of one build of a text, holding the occurrences added
+	 * since the last checkpoint so each checkpoint appends only those.
+	 * Package-private, used by IndexSetup while it parses.
+	 */
+	static final class Recorder {
+		private final IndexSetup builder;// the build checkpointed
+		private final Path file;// the checkpoint file
+		private final String stamp;// sources and options the checkpoints are saved with
+		private final Map<WordDetail, WordDetail> added = new IdentityHashMap<>();// since the last save, by detail
+		private int savedLines;// lines parsed when the last checkpoint was saved
+
+		/*
+		 * Creates a recorder with no lines saved.
+		 *
+		 * @param builder: the build checkpointed
+		 *
+		 * @param stamp: the sources and options of the build
+		 */
+		private Recorder(IndexSetup builder, String stamp) {// O(1) three actions
+			this.builder = builder;
+			this.file = Path.of(builder.checkpointFile);
+			this.stamp = stamp;
+		}
+
+		/*
+		 * Starts checkpointing a build about to parse a text, first restoring the
+		 * last checkpoint into the builder if there is one for this text and these
+		 * options. Returns null if the build is not checkpointed: no checkpoint file
+		 * is set, or it records bigrams or tracks changes and always starts over.
+		 *
+		 * @param builder: the builder about to parse
+		 *
+		 * @param text: the text file about to be parsed
+		 */
+		static Recorder resume(IndexSetup builder, String text) {// O(c) where c is the size of the checkpoint
+			if (builder.checkpointFile == null || builder.bigramIndex != null || builder.pageHashes != null
+					|| builder.lineCounter != 0)
+				return null;
+			try {
+				var recorder = new Recorder(builder, stampOf(builder, text));
+				Checkpoint checkpoint = load(recorder.file);// O(c) method
+				if (checkpoint == null || !checkpoint.stamp().equals(recorder.stamp)
+						|| !checkpoint.pagedBy(builder.pageModel))
+					return recorder;// O(l) method, a different model may page the lines differently
+				var indexes = builder.checkpointIndexes();
+				for (int i = 0; i < indexes.size(); i++) {// a loop
+					merge(indexes.get(i), checkpoint.indexes().get(i));// O(n log n) method
+				}
+				builder.lineTable = checkpoint.lineTable();
+				builder.lineCounter = checkpoint.lines();
+				builder.page = checkpoint.page();
+				recorder.savedLines = builder.lineCounter;
+				return recorder;
+			} catch (IOException e) {
+				throw new IndexingException("Cannot read checkpoint " + builder.checkpointFile, e);
+			}
+		}
+
+		/*
+		 * Returns the lines parsed when the last checkpoint was saved or restored.
+		 */
+		int savedLines() {// O(1) one action
+			return savedLines;
+		}
+
+		/*
+		 * Records an occurrence added to the index, on the line being parsed.
+		 *
+		 * @param wordDetail: the word detail the occurrence was added to
+		 *
+		 * @param offset: the word offset on the line
+		 */
+		void add(WordDetail wordDetail, int offset) {// O(1) amortised
+			var delta = added.computeIfAbsent(wordDetail, d -> new WordDetail(d.getWord()));// O(1)
+			if (builder.builtPositional)
+				delta.addPosition(builder.lineCounter, offset);
+			else
+				delta.addPage(builder.page);
+		}
+
+		/*
+		 * Saves a checkpoint if an interval of lines has passed since the last.
+		 * Called after whole lines only.
+		 *
+		 * @param lines: the lines parsed so far
+		 */
+		void linesParsed(int lines) {// O(1), O(c) when a checkpoint is saved
+			if (lines - savedLines >= builder.checkpointInterval)
+				save();// O(c) method
+		}
+
+		/*
+		 * Deletes the checkpoint file once the whole text is parsed.
+		 */
+		void delete() throws IOException {// O(1) one action
+			Files.deleteIfExists(file);
+		}
+
+		/*
+		 * Saves the lines parsed since the last checkpoint, their pages and the
+		 * occurrences they add to the indexes to the checkpoint file.
+		 */
+		private void save() {// O(c) where c is the size of the lines and occurrences since the last checkpoint
+			var indexes = builder.checkpointIndexes();
+			List<SortedMap<String, WordDetail>> deltas = new ArrayList<>();
+			for (int i = 0; i < indexes.size(); i++) {// a loop
+				deltas.add(new TreeMap<>());
+			}
+			for (var e : added.entrySet()) {// a loop
+				String word = e.getKey().getWord();
+				for (int i = 0; i < indexes.size(); i++) {// a loop, the index holding the word detail
+					if (indexes.get(i).get(word) == e.getKey()) {// O(log n)
+						deltas.get(i).put(word, e.getValue());// O(log d)
+						break;
+					}
+				}
+			}
+			var lineTable = builder.lineTable;
+			int[] pages = new int[lineTable.size() - savedLines];
+			for (int i = 0; i < pages.length; i++) {// a loop
+				pages[i] = builder.pageModel.pageOf(savedLines + i, lineTable);
+			}
+			try {
+				new Checkpoint(stamp, savedLines, builder.page, lineTable, pages, deltas).save(file);// O(c) method
+				added.clear();
+				savedLines = lineTable.size();
+			} catch (IOException e) {
+				throw new IndexingException("Cannot write checkpoint " + file, e);
+			}
+		}
+	}
+
+	/*
+	 * Describes the sources and options of a build, to check a checkpoint belongs
+	 * to it. The text, stop words and dictionary are each described by their
+	 * path, time last modified and size. Package-private, used by IndexSetup.
+	 *
+	 * @param builder: the builder
+	 *
+	 * @param textFile: the text file being parsed
+	 */
+	static String stampOf(IndexSetup builder, String textFile) throws IOException {// O(1) reads the file attributes
+		Files.size(Path.of(textFile));// the text must be readable
+		return String.join("\n", builder.getClass().getName(), IndexSetup.stampOf(textFile),
+				String.valueOf(IndexSetup.stampOf(builder.stopWordsFile)),
+				String.valueOf(IndexSetup.stampOf(builder.dictionaryFile)), Boolean.toString(builder.positional),
+				Boolean.toString(builder.removeNullDefinition));
+	}
+}
@@ -0,0 +1,251 @@
+package ie.atu.sw;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.*;
+
+/**
+ * The class Compression reads and writes files that may be compressed. Sources
+ * are recognised as gzip by their first bytes, which plain text never starts
+ * with, and as zlib (deflate with a header) or raw deflate by a file name
+ * ending in <code>.zz</code> or <code>.deflate</code>, as their headers are too
+ * short to tell apart from text. Anything else is read as plain text. Output
+ * is compressed by the file name: <code>.gz</code> for gzip, <code>.zz</code>
+ * for zlib and <code>.deflate</code> for raw deflate.
+ *
+ * Lines of a compressed source are decompressed and decoded by a distinct
+ * virtual thread into a bounded queue of batches, so decompression overlaps
+ * with the tokenizing of the lines already read.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see Parser
+ * @see IndexWriter
+ */
+public class Compression {
+	private static final int BATCH_SIZE = 1024;// lines handed over at a time
+	private static final int QUEUE_BATCHES = 16;// batches decompressed ahead of the reader
+
+	/**
+	 * The kinds of compression supported.
+	 */
+	public enum Format {
+		/** not compressed */
+		PLAIN,
+		/** gzip, RFC 1952 */
+		GZIP,
+		/** zlib, deflate with a header, RFC 1950 */
+		ZLIB,
+		/** raw deflate, RFC 1951 */
+		DEFLATE
+	}
+
+	/*
+	 * Private constructor, the class has static methods only.
+	 */
+	private Compression() {
+		super();
+	}
+
+	/**
+	 * Works out the compression of a source from its first two bytes for gzip, or
+	 * its name for zlib and raw deflate. The two byte zlib header is not looked
+	 * for, many plain texts start with bytes that pass its check.
+	 *
+	 * @param file String for file location
+	 * @return Format of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Format formatOf(String file) throws IOException {// O(1) reads two bytes
+		if (file.endsWith(".deflate"))
+			return Format.DEFLATE;
+		if (file.endsWith(".zz"))
+			return Format.ZLIB;
+		try (var in = Files.newInputStream(Path.of(file))) {
+			int b0 = in.read();
+			int b1 = in.read();
+			if (b0 == 0x1f && b1 == 0x8b)
+				return Format.GZIP;
+			return Format.PLAIN;
+		}
+	}
+
+	/**
+	 * Works out the compression of an output from its name.
+	 *
+	 * @param file String for file location
+	 * @return Format to write
+	 */
+	public static Format outputFormatOf(String file) {// O(1) compares the end of the name
+		if (file.endsWith(".gz"))
+			return Format.GZIP;
+		if (file.endsWith(".zz"))
+			return Format.ZLIB;
+		if (file.endsWith(".deflate"))
+			return Format.DEFLATE;
+		return Format.PLAIN;
+	}
+
+	/**
+	 * Returns the lines of a source, decompressing it if needed. The stream
+	 * should be closed after use, closing it early stops the decompressing thread.
+	 *
+	 * @param file String for file location
+	 * @return Stream of lines
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Stream<String> lines(String file) throws IOException {// O(1) to open, O(n) to read
+		Format format = formatOf(file);
+		if (format == Format.PLAIN)
+			return Files.lines(Path.of(file));
+		InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(file)), 1 << 16);
+		InputStream decompressed = switch (format) {
+		case GZIP -> new GZIPInputStream(in, 1 << 16);
+		case ZLIB -> new InflaterInputStream(in, new Inflater(), 1 << 16);
+		default -> new InflaterInputStream(in, new Inflater(true), 1 << 16);
+		};
+		var reader = new BufferedReader(new InputStreamReader(decompressed, StandardCharsets.UTF_8), 1 << 16);
+		var pipeline = new Pipeline(reader);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pipeline, Spliterator.ORDERED), false)
+				.onClose(pipeline::close);
+	}
+
+	/**
+	 * Opens an output stream to a file, compressing by the file name.
+	 *
+	 * @param file String for file location
+	 * @return OutputStream to write to
+	 * @throws IOException if the file cannot be written
+	 * @see #outputFormatOf(String)
+	 */
+	public static OutputStream output(String file) throws IOException {// O(1) opens the file
+		OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(file)), 1 << 16);
+		return switch (outputFormatOf(file)) {
+		case GZIP -> new GZIPOutputStream(out, 1 << 16);
+		case ZLIB -> new DeflaterOutputStream(out, new Deflater(), 1 << 16);
+		case DEFLATE -> new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true), 1 << 16);
+		default -> out;
+		};
+	}
+
+	/**
+	 * Compresses bytes as one complete gzip member. Members written one after
+	 * another form a valid gzip file that decompresses to all their bytes in order.
+	 *
+	 * @param bytes the bytes to compress
+	 * @return byte[] of the gzip member
+	 */
+	public static byte[] gzip(byte[] bytes) {// O(n) where n is the amount of bytes
+		var out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+		try (var gz = new GZIPOutputStream(out)) {
+			gz.write(bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);// not thrown by an in memory stream
+		}
+		return out.toByteArray();
+	}
+
+	/*
+	 * Reads lines on a virtual thread into a bounded queue of batches and hands
+	 * them to the consumer one line at a time. An empty batch marks the end.
+	 */
+	private static class Pipeline implements Iterator<String> {
+		private final BlockingQueue<List<String>> queue = new ArrayBlockingQueue<>(QUEUE_BATCHES);// batches read ahead
+		private final BufferedReader reader;// the decompressing reader
+		private final Thread producer;// the thread reading ahead
+		private volatile Throwable failure;// failure of the producer, if any
+		private List<String> batch = List.of();// batch being handed out
+		private int next;// index of the next line in batch
+		private boolean finished;// true once the end marker is taken
+
+		/*
+		 * Starts reading ahead.
+		 */
+		Pipeline(BufferedReader reader) {// O(1) starts a thread
+			this.reader = reader;
+			this.producer = Thread.ofVirtual().start(this::produce);
+		}
+
+		/*
+		 * Reads batches of lines until the end of the source or until interrupted.
+		 * Whatever the reader throws is kept for the consumer, and the end marker is
+		 * always queued so the consumer never waits for a batch that will not come.
+		 */
+		private void produce() {// O(n) due to loop
+			boolean closed = false;
+			try (reader) {
+				List<String> lines = new ArrayList<>(BATCH_SIZE);
+				String line;
+				while ((line = reader.readLine()) != null) {// a loop
+					lines.add(line);
+					if (lines.size() == BATCH_SIZE) {
+						queue.put(lines);
+						lines = new ArrayList<>(BATCH_SIZE);
+					}
+				}
+				if (!lines.isEmpty())
+					queue.put(lines);
+			} catch (InterruptedException e) {
+				closed = true;// closed early, nobody is waiting for the end marker
+			} catch (Throwable e) {
+				failure = e;// such as an OutOfMemoryError on a huge line
+			} finally {
+				try {
+					if (closed)
+						queue.offer(List.of());// never blocks a closed pipeline
+					else
+						queue.put(List.of());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {// O(1) amortised, waits for a batch when one is used up
+			while (!finished && next == batch.size()) {// a loop
+				try {
+					batch = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new CancellationException("interrupted while reading");
+				}
+				next = 0;
+				if (batch.isEmpty()) {
+					finished = true;
+					if (failure instanceof IOException e)
+						throw new UncheckedIOException(e);
+					if (failure instanceof Error e)
+						throw e;
+					if (failure != null)
+						throw failure instanceof RuntimeException e ? e : new IllegalStateException(failure);
+				}
+			}
+			return !finished;
+		}
+
+		@Override
+		public String next() {// O(1) one action
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return batch.get(next++);
+		}
+
+		/*
+		 * Stops the producer if it is still reading.
+		 */
+		void close() {// O(1) one action
+			producer.interrupt();
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The class Concordance finds the text around the occurrences of words in a
+ * positional index, a keyword in context view, without reading the text again.
+ * The text is memory mapped and each position is looked up with the LineTable
+ * of the build: the byte offset of its line is read from the table, that one
+ * line is decoded, and the word is found by the rule of the Tokenizer, a run of
+ * the letters a-z once each character is lower cased in the default locale. A
+ * character such as the Kelvin sign lower cases to a letter, and in a Turkish
+ * locale the capital I does not. The characters either side of the word are
+ * decoded from the mapped bytes. A lookup reads a few hundred bytes whatever
+ * the size of the text.
+ *
+ * The word found is checked against the words the tokenizer of the build gives
+ * for the line. If they differ, as a locale changed since the build may make
+ * them, the lookup is refused rather than give the context of another word.
+ *
+ * The table takes each line break as one byte. A text with \r\n line breaks
+ * throughout is also read, any other mix of line breaks, or a text changed
+ * since it was parsed, is refused.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#concordance(String, int)
+ * @see LineTable
+ */
+public class Concordance {
+	private static final int REGION = 1 << 30;// bytes of each mapped region, a buffer holds at most 2 GB
+
+	private final MappedByteBuffer[] regions;// the text, region by region
+	private final long size;// bytes of the text
+	private final LineTable lines;// lines of the text as parsed
+	private final int breakBytes;// bytes of each line break, 1 for \n and 2 for \r\n
+	private final Tokenizer tokenizer;// splits a line into words as the build did
+
+	/**
+	 * The record Context is an occurrence of a word with the text either side of
+	 * it, line breaks shown as spaces.
+	 *
+	 * @param page   the page of the occurrence
+	 * @param line   the line number, the first line being 0
+	 * @param offset the word offset on the line, the first word being 0
+	 * @param before the characters before the word
+	 * @param word   the word as it is in the text
+	 * @param after  the characters after the word
+	 */
+	public record Context(int page, int line, int offset, String before, String word, String after) {
+
+		/**
+		 * Returns the occurrence as a line of a concordance, the word in brackets.
+		 *
+		 * @return String of the context
+		 */
+		@Override
+		public String toString() {// O(n) where n is the length of the context
+			return before + "[" + word + "]" + after;
+		}
+	}
+
+	/*
+	 * Creates a concordance of a mapped text.
+	 *
+	 * @param regions: the text, region by region
+	 *
+	 * @param size: the bytes of the text
+	 *
+	 * @param lines: the lines of the text as parsed
+	 *
+	 * @param breakBytes: the bytes of each line break
+	 *
+	 * @param tokenizer: splits a line into words as the build did
+	 */
+	private Concordance(MappedByteBuffer[] regions, long size, LineTable lines, int breakBytes,
+			Tokenizer tokenizer) {// O(1) five actions
+		this.regions = regions;
+		this.size = size;
+		this.lines = lines;
+		this.breakBytes = breakBytes;
+		this.tokenizer = tokenizer;
+	}
+
+	/**
+	 * Memory maps a text for the lookup of context.
+	 *
+	 * @param text      the text file parsed, not compressed
+	 * @param lines     the lines of the text as parsed
+	 * @param tokenizer the tokenizer the text was parsed with
+	 * @return Concordance of the text
+	 * @throws IOException           if the file cannot be read
+	 * @throws IllegalStateException if the file is not the text the table was
+	 *                               made from, or has mixed line breaks
+	 */
+	public static Concordance open(Path text, LineTable lines, Tokenizer tokenizer) throws IOException {// O(r) regions mapped
+		try (var channel = FileChannel.open(text, StandardOpenOption.READ)) {
+			long size = channel.size();
+			int breakBytes;
+			if (size == lines.length() || size == lines.length() - 1)
+				breakBytes = 1;// the last line may have no line break
+			else if (size == lines.length() + lines.size() || size == lines.length() + lines.size() - 2)
+				breakBytes = 2;
+			else
+				throw new IllegalStateException("text has changed since it was parsed, or mixes line breaks: " + text);
+
+			var regions = new MappedByteBuffer[(int) ((size + REGION - 1) / REGION)];
+			for (int i = 0; i < regions.length; i++) {// a loop, the mapping outlives the channel
+				long start = (long) i * REGION;
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION, size - start));
+			}
+			var concordance = new Concordance(regions, size, lines, breakBytes, tokenizer);
+			if (lines.size() > 1 && !(concordance.followsBreak(1) && concordance.followsBreak(lines.size() - 1)))
+				throw new IllegalStateException("text has changed since it was parsed, or mixes line breaks: " + text);
+			return concordance;
+		}
+	}
+
+	/*
+	 * Memory maps the text of a build for the lookup of context, refusing a
+	 * compressed text, which cannot be mapped. Package-private, used by
+	 * IndexSetup.
+	 *
+	 * @param text: the text file parsed
+	 *
+	 * @param lines: the lines of the text as parsed
+	 *
+	 * @param tokenizer: the tokenizer the text was parsed with
+	 */
+	static Concordance of(String text, LineTable lines, Tokenizer tokenizer) {// O(r) regions mapped
+		try {
+			if (Compression.formatOf(text) != Compression.Format.PLAIN)
+				throw new IllegalStateException("context needs the text uncompressed: " + text);
+			return open(Path.of(text), lines, tokenizer);// O(r) method
+		} catch (IOException e) {
+			throw new IndexingException("Cannot read text file " + text, e);
+		}
+	}
+
+	/**
+	 * Finds the context of each of a list of positions.
+	 *
+	 * @param positions the positions packed as by PositionList
+	 * @param width     the characters of context either side of the word
+	 * @param model     the page model to give the page of each position
+	 * @return List of contexts in the order of the positions
+	 * @throws IllegalStateException if a word is not found where the table says,
+	 *                               or is not the word the tokenizer gives
+	 * @see #contextOf(long, int, PageModel)
+	 */
+	public List<Context> contextsOf(long[] positions, int width, PageModel model) {// O(m * (l + w)) due to loop
+		List<Context> contexts = new ArrayList<>(positions.length);
+		for (long position : positions) {// a loop
+			contexts.add(contextOf(position, width, model));// O(l + w) method
+		}
+		return contexts;
+	}
+
+	/**
+	 * Finds the context of a position: the word and the characters either side of
+	 * it, which may run across lines.
+	 *
+	 * @param position the position packed as by PositionList
+	 * @param width    the characters of context either side of the word
+	 * @param model    the page model to give the page of the position
+	 * @return Context of the position
+	 * @throws IllegalStateException if the word is not found where the table says,
+	 *                               or is not the word the tokenizer gives
+	 * @see PositionList#pack(int, int)
+	 */
+	public Context contextOf(long position, int width, PageModel model) {// O(l + w) line length and width
+		int line = PositionList.line(position);
+		int offset = PositionList.offset(position);
+		long lineStart = startOf(line);
+		String text = decode(lineStart, Math.min(size, startOf(line + 1) - breakBytes));
+
+		int from = -1;// first character of the word on the line
+		int to = -1;// character after the word
+		var word = new StringBuilder();// the word lower cased
+		int runs = 0;// runs of letters ended so far
+		boolean inRun = false;
+		for (int i = 0; i <= text.length() && to < 0;) {// a loop, the runs of letters are the words of the line
+			int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+			int next = i + Character.charCount(codePoint);
+			String lower = Character.toString(codePoint).toLowerCase();// as the tokenizer lower cases the line
+			for (int j = 0; j < lower.length() && to < 0; j++) {// a loop, a character may lower case to several
+				boolean letter = isLetter(lower.charAt(j));
+				if (letter && !inRun && runs == offset)
+					from = i;
+				if (letter && runs == offset)
+					word.append(lower.charAt(j));
+				if (!letter && inRun) {
+					if (runs == offset)
+						to = j > 0 ? next : i;// a run ending inside a character takes all of it
+					runs++;
+				}
+				inRun = letter;
+			}
+			i = next;
+		}
+		String[] tokens = tokenizer.tokenize(text);// O(l) the words of the line as the build found them
+		int token = offset + (tokens.length > 0 && tokens[0].isEmpty() ? 1 : 0);
+		if (to < 0 || token >= tokens.length || !tokens[token].contentEquals(word))
+			throw new IllegalStateException("word " + offset + " on line " + line
+					+ " is not the word the tokenizer gives, the text or the locale has changed");
+
+		long wordStart = lineStart + utf8Length(text.substring(0, from));
+		long wordEnd = wordStart + utf8Length(text.substring(from, to));
+		String before = decode(Math.max(0, wordStart - 4L * width), wordStart);
+		String after = decode(wordEnd, Math.min(size, wordEnd + 4L * width));// at most 4 bytes a character
+		int first = Math.max(0, before.length() - width);
+		int last = Math.min(after.length(), width);
+		if (first > 0 && Character.isLowSurrogate(before.charAt(first)))
+			first++;// not half a character
+		if (last > 0 && Character.isHighSurrogate(after.charAt(last - 1)))
+			last--;
+		before = before.substring(first);
+		after = after.substring(0, last);
+		return new Context(model.pageOf(line, lines), line, offset, spaced(before), text.substring(from, to),
+				spaced(after));
+	}
+
+	/*
+	 * Returns the byte offset a line starts at, the table taking each line break
+	 * as one byte. The line after the last starts after the end of the text.
+	 *
+	 * @param line: the line number, up to the number of lines
+	 */
+	private long startOf(int line) {// O(1) one action
+		long start = line < lines.size() ? lines.offsetOf(line) : lines.length();
+		return start + (long) (breakBytes - 1) * line;
+	}
+
+	/*
+	 * Returns true if a line starts straight after a line break, to check the text
+	 * is the one the table was made from.
+	 *
+	 * @param line: the line number, not the first
+	 */
+	private boolean followsBreak(int line) {// O(1) reads two bytes
+		long start = startOf(line);
+		return start <= size && byteAt(start - 1) == '\n' && (breakBytes == 1 || byteAt(start - 2) == '\r');
+	}
+
+	/*
+	 * Returns true if a lower cased character is one of the letters the tokenizer
+	 * keeps.
+	 *
+	 * @param c: the character, lower cased
+	 */
+	private static boolean isLetter(char c) {// O(1) one action
+		return c >= 'a' && c <= 'z';
+	}
+
+	/*
+	 * Returns the number of bytes of a String in UTF-8.
+	 *
+	 * @param text: the text
+	 */
+	private static int utf8Length(String text) {// O(n) where n is the length of the text
+		return text.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	/*
+	 * Reads a byte of the text.
+	 *
+	 * @param i: the byte offset
+	 */
+	private byte byteAt(long i) {// O(1) one action
+		return regions[(int) (i / REGION)].get((int) (i % REGION));
+	}
+
+	/*
+	 * Decodes a range of the text as UTF-8, leaving out the end of a character cut
+	 * at the start of the range.
+	 *
+	 * @param from: the first byte
+	 *
+	 * @param to: the byte after the last
+	 */
+	private String decode(long from, long to) {// O(n) where n is the length of the range
+		while (from < to && (byteAt(from) & 0xC0) == 0x80) {// a loop, continuation bytes
+			from++;
+		}
+		byte[] bytes = new byte[(int) (to - from)];
+		for (int i = 0; i < bytes.length; i++) {// a loop
+			bytes[i] = byteAt(from + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * Shows the line breaks of a context as spaces.
+	 *
+	 * @param text: the context
+	 */
+	private static String spaced(String text) {// O(n) where n is the length of the text
+		return text.replace('\r', ' ').replace('\n', ' ');
+	}
+}
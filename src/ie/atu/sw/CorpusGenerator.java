@@ -0,0 +1,290 @@
+package ie.atu.sw;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The class CorpusGenerator writes synthetic texts, dictionaries and stop word
+ * lists of any size for exercising the builders. Words of the text are drawn
+ * from a vocabulary with a Zipfian distribution, the word of rank k occurring in
+ * proportion to 1 / k^s, as words do in natural language. The same seed and
+ * settings always give the same files.
+ *
+ * A fraction of the words of the text have a letter written as a character
+ * outside ASCII, some, like the Kelvin sign, lower casing to a letter a-z and
+ * some, like e acute, splitting the word, and a fraction of the lines start
+ * with a form feed, a page break to the form feed page model. Lines end with
+ * \n or, if set, \r\n.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see ScaleSuite
+ */
+public class CorpusGenerator {
+	private final long seed;// seed of every random choice
+	private int vocabularySize = 50_000;// distinct words that can occur in the text
+	private double zipfExponent = 1.0;// exponent s of the Zipfian distribution
+	private int wordsPerLine = 10;// average words on a line
+	private double definedFraction = 0.7;// fraction of the vocabulary in the dictionary
+	private double nonAsciiFraction = 0.01;// fraction of the words of the text with a letter outside ASCII
+	private double formFeedFraction = 0.02;// fraction of the lines of the text starting with a form feed
+	private String lineBreak = "\n";// the line break of the text
+	private String[] vocabulary;// the words, most frequent first
+	private double[] cumulative;// cumulative probability of each rank
+
+	/**
+	 * Constructor of the CorpusGenerator class, creates a generator with the
+	 * default settings.
+	 *
+	 * @param seed the seed of every random choice
+	 */
+	public CorpusGenerator(long seed) {// O(1) one action
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the number of distinct words that can occur in the text.
+	 *
+	 * @param vocabularySize int number of words
+	 */
+	public void setVocabularySize(int vocabularySize) {// O(1) two actions
+		this.vocabularySize = vocabularySize;
+		this.vocabulary = null;
+	}
+
+	/**
+	 * Sets the exponent of the Zipfian distribution, 1.0 being close to English.
+	 *
+	 * @param zipfExponent double exponent
+	 */
+	public void setZipfExponent(double zipfExponent) {// O(1) two actions
+		this.zipfExponent = zipfExponent;
+		this.cumulative = null;
+	}
+
+	/**
+	 * Sets the average number of words on a line.
+	 *
+	 * @param wordsPerLine int number of words
+	 */
+	public void setWordsPerLine(int wordsPerLine) {// O(1) one action - set
+		this.wordsPerLine = wordsPerLine;
+	}
+
+	/**
+	 * Sets the fraction of the vocabulary given a definition in the dictionary.
+	 *
+	 * @param definedFraction double from 0 to 1
+	 */
+	public void setDefinedFraction(double definedFraction) {// O(1) one action - set
+		this.definedFraction = definedFraction;
+	}
+
+	/**
+	 * Sets the fraction of the words of the text with a letter written as a
+	 * character outside ASCII.
+	 *
+	 * @param nonAsciiFraction double from 0 to 1
+	 */
+	public void setNonAsciiFraction(double nonAsciiFraction) {// O(1) one action - set
+		this.nonAsciiFraction = nonAsciiFraction;
+	}
+
+	/**
+	 * Sets the fraction of the lines of the text starting with a form feed.
+	 *
+	 * @param formFeedFraction double from 0 to 1
+	 */
+	public void setFormFeedFraction(double formFeedFraction) {// O(1) one action - set
+		this.formFeedFraction = formFeedFraction;
+	}
+
+	/**
+	 * Sets the line break of the text, \n or \r\n.
+	 *
+	 * @param lineBreak String of the line break
+	 */
+	public void setLineBreak(String lineBreak) {// O(1) one action - set
+		this.lineBreak = lineBreak;
+	}
+
+	/**
+	 * Writes a text of a number of lines. Lines have mixed case, punctuation,
+	 * the odd blank line and page break and the odd letter outside ASCII, as a
+	 * book would.
+	 *
+	 * @param file  String for file location
+	 * @param lines int number of lines
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeText(String file, int lines) throws IOException {// O(n log v) binary search per word
+		prepare();
+		Random random = new Random(seed);
+		try (BufferedWriter bw = Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8)) {
+			for (int i = 0; i < lines; i++) {// a loop
+				if (random.nextDouble() < formFeedFraction)
+					bw.write('\f');
+				if (random.nextInt(20) == 0) {
+					bw.write(lineBreak);
+					continue;
+				}
+				int words = 1 + random.nextInt(2 * wordsPerLine - 1);
+				for (int w = 0; w < words; w++) {// a loop
+					String word = vocabulary[rank(random.nextDouble())];
+					if (w == 0 || random.nextInt(15) == 0)
+						word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+					if (random.nextDouble() < nonAsciiFraction)
+						word = withNonAscii(word, random);
+					bw.write(word);
+					int punctuation = random.nextInt(12);
+					if (w == words - 1)
+						bw.write('.');
+					else if (punctuation == 0)
+						bw.write(", ");
+					else if (punctuation == 1)
+						bw.write("; ");
+					else
+						bw.write(' ');
+				}
+				bw.write(lineBreak);
+			}
+		}
+	}
+
+	/**
+	 * Writes a dictionary in the form <code>Word,part of speech,definition</code>,
+	 * one line per word. A fraction of the vocabulary is defined along with as
+	 * many words that never occur in the text.
+	 *
+	 * @param file String for file location
+	 * @throws IOException if the file cannot be written
+	 * @see #setDefinedFraction(double)
+	 */
+	public void writeDictionary(String file) throws IOException {// O(v) where v is the vocabulary size
+		prepare();
+		Random random = new Random(seed + 1);
+		String[] parts = { "n.", "v.", "adj.", "adv." };
+		try (BufferedWriter bw = Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8)) {
+			for (int i = 0; i < vocabulary.length; i++) {// a loop
+				if (random.nextDouble() >= definedFraction)
+					continue;
+				String word = vocabulary[i];
+				bw.write(Character.toUpperCase(word.charAt(0)) + word.substring(1) + "," + parts[random.nextInt(4)]
+						+ ",Definition " + i + " of " + word + "\n");
+			}
+			Set<String> known = new HashSet<>(Arrays.asList(vocabulary));
+			Random extra = new Random(seed + 2);
+			int written = 0;
+			while (written < vocabulary.length * definedFraction) {// a loop
+				String word = randomWord(extra);// checked against the vocabulary so it never occurs in the text
+				if (known.add(word)) {
+					bw.write(word + "," + parts[extra.nextInt(4)] + ",Unused definition of " + word + "\n");
+					written++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a stop word list of the most frequent words of the vocabulary, one
+	 * per line, like google-1000.txt.
+	 *
+	 * @param file  String for file location
+	 * @param count int number of stop words
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeStopWords(String file, int count) throws IOException {// O(n) due to loop
+		prepare();
+		try (BufferedWriter bw = Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8)) {
+			for (int i = 0; i < Math.min(count, vocabulary.length); i++) {// a loop
+				bw.write(vocabulary[i] + "\n");
+			}
+		}
+	}
+
+	/*
+	 * Creates the vocabulary and the cumulative distribution if settings changed.
+	 */
+	private void prepare() {// O(v) where v is the vocabulary size
+		if (vocabulary == null) {
+			Random random = new Random(seed - 1);
+			Set<String> words = new LinkedHashSet<>();
+			while (words.size() < vocabularySize) {// a loop
+				words.add(randomWord(random));
+			}
+			vocabulary = words.toArray(new String[0]);
+			cumulative = null;
+		}
+		if (cumulative == null) {
+			cumulative = new double[vocabulary.length];
+			double sum = 0;
+			for (int k = 0; k < vocabulary.length; k++) {// a loop
+				sum += 1.0 / Math.pow(k + 1, zipfExponent);
+				cumulative[k] = sum;
+			}
+			for (int k = 0; k < cumulative.length; k++) {// a loop
+				cumulative[k] /= sum;
+			}
+		}
+	}
+
+	/*
+	 * Returns the rank whose cumulative probability first reaches p.
+	 *
+	 * @param p: a uniform random number from 0 to 1
+	 */
+	private int rank(double p) {// O(log v) binary search
+		int index = Arrays.binarySearch(cumulative, p);
+		index = index < 0 ? -index - 1 : index;
+		return Math.min(index, cumulative.length - 1);
+	}
+
+	/*
+	 * Returns a word with one letter written as a character outside ASCII: a k as
+	 * the Kelvin sign, which lower cases to k, an i as the capital I with a dot,
+	 * which lower cases to i and a combining dot, or any other letter as a letter
+	 * with an accent, which the tokenizer does not keep.
+	 *
+	 * @param word: the word
+	 *
+	 * @param random: the source of randomness
+	 */
+	private static String withNonAscii(String word, Random random) {// O(k) where k is the length of the word
+		int at = word.toLowerCase().indexOf('k');
+		if (at < 0 || random.nextBoolean())
+			at = random.nextInt(word.length());// half the words with a k have the Kelvin sign
+		char c = Character.toLowerCase(word.charAt(at));
+		String letter = switch (c) {
+		case 'k' -> "\u212A";
+		case 'i' -> "\u0130";
+		case 'a' -> "\u00E1";
+		case 'e' -> "\u00E9";
+		case 'o' -> "\u00F6";
+		case 'u' -> "\u00FC";
+		case 'n' -> "\u00F1";
+		case 's' -> "\u00DF";
+		default -> "\u00E6";
+		};
+		return word.substring(0, at) + letter + word.substring(at + 1);
+	}
+
+	/*
+	 * Returns a lower case word of 1 to 12 letters, shorter words being likelier.
+	 *
+	 * @param random: the source of randomness
+	 */
+	private static String randomWord(Random random) {// O(1) at most 12 letters
+		int length = 1 + Math.min(random.nextInt(6) + random.nextInt(7), 11);
+		char[] letters = new char[length];
+		for (int i = 0; i < length; i++) {// a loop
+			letters[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(letters);
+	}
+}
@@ -0,0 +1,301 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.*;
+
+/**
+ * The class DualIndexBuilder builds both indexes in a single pass of the text:
+ * the index that excludes stop words, as built by IndexBuilder, and the index
+ * of stop word occurrences, as built by AlternateIndexBuilder. Each word of the
+ * text is tokenized once and routed to one index or the other by a lookup in
+ * the shared stop words, then definitions for both are resolved in one pass
+ * against the dictionary. The text, dictionary and stop words are read once
+ * instead of twice.
+ *
+ * The index that excludes stop words is written to the output file and the stop
+ * words index to the stop words output file. Only the index that excludes stop
+ * words is published to the subscribers of the publisher. Extends IndexSetup.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexBuilder
+ * @see AlternateIndexBuilder
+ * @see #setStopWordsOutputFile(String)
+ */
+public class DualIndexBuilder extends IndexSetup {
+	private ConcurrentSkipListMap<String, WordDetail> stopWordIndex = new ConcurrentSkipListMap<>();// thread safe map
+	private Set<String> stopWords = Set.of();// stop words, shared with other builders until changed
+	private String stopWordsOutputFile;// file location for output of stop words index
+
+	/**
+	 * Constructor of the DualIndexBuilder class, creates a new instance of the
+	 * class.
+	 */
+	public DualIndexBuilder() {
+		super();
+	}
+
+	/**
+	 * Sets output file of the stop words index to passed parameter.
+	 *
+	 * @param stopWordsOutputFile String for file location
+	 */
+	public void setStopWordsOutputFile(String stopWordsOutputFile) {// O(1) one action - set
+		this.stopWordsOutputFile = stopWordsOutputFile;
+	}
+
+	/**
+	 * {@inheritDoc} Both indexes are built and output. All file locations should
+	 * be set before use.
+	 *
+	 * @see #setTextFile(String)
+	 * @see #setDictionaryFile(String)
+	 * @see #setStopWordsFile(String)
+	 * @see #setOutputFile(String)
+	 * @see #setStopWordsOutputFile(String)
+	 */
+	public void buildIndex() {// O(n) due to called methods
+		createIndex();// O(n) method
+
+		outputIndex();// O(n) method
+		printProgress(100, 100);// O(n) method
+	}
+
+	/**
+	 * {@inheritDoc} Any previous indexes are discarded first. Stop words and
+	 * dictionary are taken from the cache shared by all builders and only parsed if
+	 * their files have changed.
+	 *
+	 * @see #loadStopWords(String)
+	 * @see #loadDictionary(String)
+	 */
+	public void createIndex() {// O(n) due to called methods
+		int progress = 0;
+		int progressSize = 100;
+		resetBuild();// O(1) method
+		stopWordIndex = new ConcurrentSkipListMap<>();
+
+		try {
+			stopWords = loadStopWords(super.stopWordsFile, super.execution);// O(1) if cached
+			printProgress(progress += 20, progressSize);// O(n) method
+
+			parse(super.textFile);// O(n) method
+			if (super.builtPositional)
+				repaginate(super.pageModel);
+			printProgress(progress += 20, progressSize);// O(n) method
+
+			var dictionary = loadDictionary(super.dictionaryFile, super.execution);// O(1) if cached
+			addDefinitions(dictionary);// O(n) method
+			addStopWordDefinitions(dictionary);// O(n) method
+			printProgress(progress += 20, progressSize);// O(n) method
+		} catch (IOException e) {
+			throw publishFailure(new IndexingException("Cannot read the stop words or dictionary", e));
+		} catch (RuntimeException e) {
+			throw publishFailure(e);// O(s) method, subscribers waiting are sent the error
+		}
+
+		if (super.removeNullDefinition == true) {
+			removeNullDefinition();// O(n) method
+		}
+		publishIndex();// O(s) method, the index that excludes stop words
+		printProgress(progress += 20, progressSize);// O(n) method
+	}
+
+	/**
+	 * {@inheritDoc} Each word goes to the stop words index if it is a stop word,
+	 * otherwise to the index. Text File should be set first before use.
+	 *
+	 * @see #setTextFile(String)
+	 */
+	protected void processWords(String line, String[] words) {// O(n) where n is the amount of words to process
+		startLine(line, countWords(words));
+		int offset = 0;
+		for (String word : words) {// a loop
+			ConcurrentSkipListMap<String, WordDetail> target = null;
+			if (stopWords.contains(word)) {// O(1) or O(log n) by the set
+				target = stopWordIndex;
+			} else if (!word.isEmpty()) {
+				target = index;
+			}
+			if (target != null) {
+				var wordDetail = target.get(word);// O(log n)
+				if (wordDetail == null) {
+					wordDetail = new WordDetail(word);
+					target.put(word, wordDetail);// O(log n)
+				}
+				addOccurrence(wordDetail, offset);
+			}
+			if (!word.isEmpty())
+				offset++;
+		}
+		endLine();
+	}
+
+	/**
+	 * {@inheritDoc} The definition is given to whichever index holds the word.
+	 * Dictionary File should be set first before use.
+	 *
+	 * @see #setDictionaryFile(String)
+	 */
+	public void processDictionary(String line) {// O(log n) average skip list cost
+		String str[] = line.toLowerCase().trim().split(",");
+		var wordDetail = index.get(str[0]);// O(log n)
+		if (wordDetail == null)
+			wordDetail = stopWordIndex.get(str[0]);// O(log n)
+		if (wordDetail != null)
+			wordDetail.setDefinition(line);
+	}
+
+	/**
+	 * {@inheritDoc} Stop Words File should be set first before use.
+	 *
+	 * @see #setStopWordsFile(String)
+	 */
+	public void processStopWords(String line) {// O(n) where n is the amount of words
+		if (!(stopWords instanceof ConcurrentSkipListSet))
+			stopWords = new ConcurrentSkipListSet<>(stopWords);// copied before the first change
+		Arrays.stream(line.split("\\s+")).forEach(word -> stopWords.add(word.toLowerCase()));// a loop
+	}
+
+	/*
+	 * Gives each word in the stop words index its definition, in the same pass over
+	 * the dictionary as the index.
+	 *
+	 * @param dictionary: Map of word to definition
+	 */
+	private void addStopWordDefinitions(Map<String, String> dictionary) {// O(n) due to loop
+		for (Entry<String, WordDetail> e : stopWordIndex.entrySet()) {// a loop
+			var definition = dictionary.get(e.getKey());// O(1)
+			if (definition != null)
+				e.getValue().setDefinition(definition);
+		}
+	}
+
+	/**
+	 * {@inheritDoc} Stop words go to the stop words index, other words to the
+	 * index.
+	 */
+	@Override
+	protected ConcurrentSkipListMap<String, WordDetail> targetOf(String word) {// O(1) or O(log n) by the set
+		if (stopWords.contains(word))
+			return stopWordIndex;
+		return word.isEmpty() ? null : index;
+	}
+
+	/**
+	 * {@inheritDoc} The index, then the stop words index.
+	 */
+	@Override
+	protected List<ConcurrentSkipListMap<String, WordDetail>> checkpointIndexes() {// O(1) one action
+		return List.of(index, stopWordIndex);
+	}
+
+	/**
+	 * {@inheritDoc} Pages of both indexes are derived.
+	 */
+	@Override
+	public void repaginate(PageModel model) {// O(n) where n is the amount of positions in both indexes
+		super.repaginate(model);
+		for (WordDetail wordDetail : stopWordIndex.values()) {// a loop
+			wordDetail.repaginate(model, lineTable);// O(n) method
+		}
+	}
+
+	/**
+	 * {@inheritDoc} Counted in the index that excludes stop words.
+	 */
+	public int uniqueWordCount() {// O(n) due to loop
+		return uniqueWordCount(index);
+	}
+
+	/**
+	 * {@inheritDoc} Removed from both indexes.
+	 */
+	public void removeNullDefinition() {// O(n) due to loop
+		index.values().removeIf(wordDetail -> !wordDetail.hasdefinition());// O(n)
+		stopWordIndex.values().removeIf(wordDetail -> !wordDetail.hasdefinition());// O(n)
+	}
+
+	/**
+	 * Prints all words in the index that excludes stop words to console. Five words
+	 * per line in natural order (a-z) or reverse order (z-a).
+	 *
+	 * @param naturalOrder <b>true</b> for natural, <b>false</b> for reverse
+	 * @see #printAllWords(IndexOrdering)
+	 */
+	public void printAllWords(boolean naturalOrder) {// O(n log n / p) method
+		printAllWords(naturalOrder ? IndexOrdering.ALPHABETICAL : IndexOrdering.REVERSE_ALPHABETICAL);
+	}
+
+	/**
+	 * {@inheritDoc} Both indexes are written at the same time by distinct virtual
+	 * threads. Output File and Stop Words Output File should be set first before
+	 * use.
+	 *
+	 * @see #setOutputFile(String)
+	 * @see #setStopWordsOutputFile(String)
+	 * @see #setParallelOutput(boolean)
+	 * @see #setOrdering(IndexOrdering)
+	 */
+	public void outputIndex() {// O(n) due to IndexWriter
+		try (var es = Executors.newVirtualThreadPerTaskExecutor()) {
+			var main = es.submit(() -> write(index, super.outputFile));
+			var stop = es.submit(() -> write(stopWordIndex, stopWordsOutputFile));
+			main.get();
+			stop.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("interrupted while writing indexes");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause)
+				throw cause;// the IndexingException of the failed write
+			throw new IndexingException("Cannot write indexes", e.getCause());
+		}
+	}
+
+	/*
+	 * Returns a read only view of the stop words index in natural order.
+	 */
+	SortedMap<String, WordDetail> getStopWordIndex() {// O(1) creates a view only
+		return Collections.unmodifiableSortedMap(stopWordIndex);
+	}
+
+	/*
+	 * Writes one of the indexes with its own unique word count.
+	 *
+	 * @throws IndexingException if the file cannot be written
+	 *
+	 * @param map: the index to write
+	 *
+	 * @param file: the file location
+	 */
+	private void write(SortedMap<String, WordDetail> map, String file) {// O(n) due to IndexWriter
+		try {
+			String header = null;
+			if (super.displayUniqueWordCount == true) {
+				header = "Total Unique Words: " + uniqueWordCount(map) + "\n\n";// O(n) method
+			}
+			writeIndex(map, header, file);// O(n) method
+		} catch (IOException e) {
+			throw new IndexingException("Cannot write index to " + file, e);
+		}
+	}
+
+	/*
+	 * Counts the words of an index that occur only once.
+	 *
+	 * @param map: the index to count
+	 */
+	private static int uniqueWordCount(SortedMap<String, WordDetail> map) {// O(n) due to loop
+		int counter = 0;
+		for (WordDetail wordDetail : map.values()) {// a loop
+			if (wordDetail.isUnique() == true)
+				counter++;
+		}
+		return counter;
+	}
+}
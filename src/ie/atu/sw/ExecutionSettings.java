@@ -0,0 +1,77 @@
+package ie.atu.sw;
+
+/**
+ * The record ExecutionSettings holds how a build runs its parallel work: the
+ * strategy, the parallelism and the number of lines in each batch. For virtual
+ * threads the parallelism bounds the batches of text tokenized ahead of the
+ * index, for a ForkJoinPool it is also the number of threads.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @param strategy    the execution strategy
+ * @param parallelism the number of batches worked on at once, at least 1
+ * @param batchSize   the number of lines in a batch, at least 1
+ *
+ * @see ExecutionStrategy
+ * @see AutoTuner
+ */
+public record ExecutionSettings(ExecutionStrategy strategy, int parallelism, int batchSize) {
+
+	/**
+	 * Checks the settings.
+	 *
+	 * @throws IllegalArgumentException if the strategy is null or the parallelism
+	 *                                  or batch size less than 1
+	 */
+	public ExecutionSettings {// O(1) three checks
+		if (strategy == null)
+			throw new IllegalArgumentException("strategy is required");
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batch size must be at least 1: " + batchSize);
+	}
+
+	/**
+	 * Returns the default settings: virtual threads, a parallelism of the number
+	 * of processors and batches of 1024 lines.
+	 *
+	 * @return ExecutionSettings default
+	 */
+	public static ExecutionSettings defaults() {// O(1) one action
+		return new ExecutionSettings(ExecutionStrategy.VIRTUAL_THREADS, Runtime.getRuntime().availableProcessors(),
+				1024);
+	}
+
+	/**
+	 * Returns these settings with another strategy.
+	 *
+	 * @param strategy the execution strategy
+	 * @return ExecutionSettings changed
+	 */
+	public ExecutionSettings withStrategy(ExecutionStrategy strategy) {// O(1) one action
+		return new ExecutionSettings(strategy, parallelism, batchSize);
+	}
+
+	/**
+	 * Returns these settings with another parallelism.
+	 *
+	 * @param parallelism the number of batches worked on at once
+	 * @return ExecutionSettings changed
+	 */
+	public ExecutionSettings withParallelism(int parallelism) {// O(1) one action
+		return new ExecutionSettings(strategy, parallelism, batchSize);
+	}
+
+	/**
+	 * Returns these settings with another batch size.
+	 *
+	 * @param batchSize the number of lines in a batch
+	 * @return ExecutionSettings changed
+	 */
+	public ExecutionSettings withBatchSize(int batchSize) {// O(1) one action
+		return new ExecutionSettings(strategy, parallelism, batchSize);
+	}
+}
@@ -0,0 +1,40 @@
+package ie.atu.sw;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The enum ExecutionStrategy lists the ways a build can run its parallel work:
+ * parsing the stop words and dictionary, and tokenizing the text. Lines are
+ * handed out in batches. Words are always added to the index in the order of
+ * the text, so every strategy builds the same index.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see ExecutionSettings
+ * @see IndexSetup#setExecutionStrategy(ExecutionStrategy)
+ */
+public enum ExecutionStrategy {
+	/** a distinct virtual thread for each batch, the default */
+	VIRTUAL_THREADS,
+	/** a ForkJoinPool of platform threads bounded by the parallelism */
+	FORK_JOIN,
+	/** every line on the thread running the build */
+	SEQUENTIAL;
+
+	/*
+	 * Returns a new executor for the strategy, to be closed after use.
+	 * Package-private, not used for SEQUENTIAL which has no executor.
+	 *
+	 * @param parallelism: the most threads of a ForkJoinPool
+	 */
+	ExecutorService newExecutor(int parallelism) {// O(1) creates an executor
+		return switch (this) {
+		case FORK_JOIN -> new ForkJoinPool(parallelism);
+		default -> Executors.newVirtualThreadPerTaskExecutor();
+		};
+	}
+}
@@ -0,0 +1,141 @@
+package ie.atu.sw;
+
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The class FrozenIndex is a read only copy of an index taken once a build is
+ * done, used to print or write the index in any IndexOrdering. Each word is
+ * given a term id, its position in natural order, and the details of the words
+ * are shared with the index rather than copied.
+ *
+ * An ordering is found by packing the key of each word and its term id into
+ * one long, so sorting the longs with a parallel sort sorts the term ids by
+ * key and breaks ties in natural order. Only an array of term ids is kept for
+ * each ordering, made the first time it is asked for.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexOrdering
+ * @see IndexSetup#freeze()
+ */
+public class FrozenIndex {
+	private final String[] words;// words by term id, in natural order
+	private final WordDetail[] details;// details of each word by term id
+	private final Map<IndexOrdering, int[]> orders = new ConcurrentHashMap<>();// term ids of each ordering made
+
+	/**
+	 * Constructor of the FrozenIndex class, takes the words and details of an
+	 * index as they are now.
+	 *
+	 * @param index the index in natural order, not changed afterwards
+	 */
+	public FrozenIndex(SortedMap<String, WordDetail> index) {// O(n) copy of the references
+		List<Entry<String, WordDetail>> entries = new ArrayList<>(index.entrySet());// one pass, a consistent copy
+		words = new String[entries.size()];
+		details = new WordDetail[entries.size()];
+		for (int i = 0; i < words.length; i++) {// a loop
+			words[i] = entries.get(i).getKey();
+			details[i] = entries.get(i).getValue();
+		}
+	}
+
+	/**
+	 * Gets the number of words in the index.
+	 *
+	 * @return int number of words
+	 */
+	public int size() {// O(1) one action
+		return words.length;
+	}
+
+	/**
+	 * Gets the word of a term id.
+	 *
+	 * @param termId the position of the word in natural order
+	 * @return String word
+	 */
+	public String word(int termId) {// O(1) one action
+		return words[termId];
+	}
+
+	/**
+	 * Gets the details of the word of a term id.
+	 *
+	 * @param termId the position of the word in natural order
+	 * @return WordDetail of the word
+	 */
+	public WordDetail detail(int termId) {// O(1) one action
+		return details[termId];
+	}
+
+	/**
+	 * Gets the term ids of the words in an ordering. The array is shared and must
+	 * not be changed.
+	 *
+	 * @param ordering the ordering
+	 * @return int[] of term ids in order
+	 */
+	public int[] order(IndexOrdering ordering) {// O(n log n / p) the first time, O(1) after
+		return orders.computeIfAbsent(ordering, this::sort);
+	}
+
+	/**
+	 * Gets the entries of the index in an ordering, a read only view made of the
+	 * term ids of the ordering.
+	 *
+	 * @param ordering the ordering
+	 * @return List of entries in order
+	 * @see IndexWriter#write(List, String, String, boolean)
+	 */
+	public List<Entry<String, WordDetail>> entries(IndexOrdering ordering) {// O(1) view, plus the first sort
+		int[] order = order(ordering);
+		return new Entries(order);
+	}
+
+	/*
+	 * A read only list of the entries of the words of an array of term ids.
+	 */
+	private class Entries extends AbstractList<Entry<String, WordDetail>> implements RandomAccess {
+		private final int[] order;// term ids in order
+
+		/*
+		 * @param order: the term ids in order
+		 */
+		Entries(int[] order) {// O(1) one action
+			this.order = order;
+		}
+
+		@Override
+		public Entry<String, WordDetail> get(int i) {// O(1) creates an entry
+			return Map.entry(words[order[i]], details[order[i]]);
+		}
+
+		@Override
+		public int size() {// O(1) one action
+			return order.length;
+		}
+	}
+
+	/*
+	 * Sorts the term ids by the key of an ordering. Natural order is the order of
+	 * the term ids, so it needs no sort.
+	 *
+	 * @param ordering: the ordering
+	 */
+	private int[] sort(IndexOrdering ordering) {// O(n log n / p) where p is the amount of cores
+		int[] order = new int[words.length];
+		if (ordering == IndexOrdering.ALPHABETICAL) {
+			Arrays.parallelSetAll(order, i -> i);// O(n / p)
+			return order;
+		}
+		long[] keys = new long[words.length];
+		Arrays.parallelSetAll(keys, i -> (long) ordering.rank(details[i], i) << 32 | i);// O(n / p)
+		Arrays.parallelSort(keys);// O(n log n / p)
+		Arrays.parallelSetAll(order, i -> (int) keys[i]);// O(n / p) the term id in the low bits
+		return order;
+	}
+}
@@ -0,0 +1,115 @@
+package ie.atu.sw;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The class IndexBuild is the handle of a build running asynchronously on its
+ * own virtual thread. It is a CompletableFuture completed with the builder once
+ * the index is built and output, or exceptionally with the IndexingException
+ * or other exception that stopped the build.
+ *
+ * Cancelling the handle, or its deadline passing, stops the build promptly: the
+ * builder checks for a stop before each line of text and the build thread is
+ * interrupted, which stops the threads reading compressed sources and writing
+ * the output. A build that passes its deadline completes with a
+ * TimeoutException. The index of a stopped build is incomplete.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#buildIndexAsync()
+ * @see IndexingException
+ */
+public class IndexBuild extends CompletableFuture<IndexSetup> {
+	private final IndexSetup builder;// the builder running the build
+	private final Thread worker;// the virtual thread running the build
+	private Thread timer;// the virtual thread waiting for the deadline, if any
+
+	/*
+	 * Creates a handle for a build that is not started yet.
+	 *
+	 * @param builder: the builder to run
+	 *
+	 * @param task: the build to run on the builder
+	 */
+	IndexBuild(IndexSetup builder, Runnable task) {// O(1) creates a thread
+		this.builder = builder;
+		this.worker = Thread.ofVirtual().name("index-build").unstarted(() -> run(task));
+	}
+
+	/*
+	 * Starts the build, and the timer if there is a deadline.
+	 *
+	 * @param deadline: how long the build may run for, null for no limit
+	 */
+	void start(Duration deadline) {// O(1) starts threads
+		if (deadline != null) {
+			timer = Thread.ofVirtual().name("index-build-deadline").start(() -> {
+				try {
+					Thread.sleep(deadline);
+					if (completeExceptionally(new TimeoutException("build did not finish within " + deadline)))
+						stop();
+				} catch (InterruptedException e) {
+					return;// the build finished first
+				}
+			});
+		}
+		worker.start();
+	}
+
+	/*
+	 * Runs the build and completes the future with its result. If the future is
+	 * already cancelled or timed out the result is dropped.
+	 *
+	 * @param task: the build to run
+	 */
+	private void run(Runnable task) {// O(n) due to the build
+		try {
+			task.run();
+			complete(builder);
+		} catch (Throwable e) {
+			completeExceptionally(e);
+		} finally {
+			builder.finishAsync(this);
+			if (timer != null)
+				timer.interrupt();
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The build is stopped and the thread running it interrupted.
+	 * The build may still be unwinding when this returns.
+	 *
+	 * @see #awaitStopped(Duration)
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {// O(1) one action
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+		if (cancelled)
+			stop();
+		return cancelled;
+	}
+
+	/**
+	 * Waits for the thread running the build to end, after the build completes or
+	 * is stopped. Once it has ended the builder can be built again.
+	 *
+	 * @param timeout the longest time to wait
+	 * @return true if the thread has ended
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean awaitStopped(Duration timeout) throws InterruptedException {// O(1) waits only
+		return worker.join(timeout);
+	}
+
+	/*
+	 * Asks the builder to stop at the next line and interrupts the build thread.
+	 */
+	private void stop() {// O(1) two actions
+		builder.requestStop();
+		worker.interrupt();
+	}
+}
@@ -1,9 +1,6 @@
 package ie.atu.sw;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.*;
@@ -13,7 +10,8 @@ import java.util.concurrent.*;
  * an associated definition and page index. It <b>does not</b> add supplied stop
  * words to the index. Extends IndexSetup. The text, dictionary and stop words
  * are to be <b>supplied by the user</b> using setter methods of IndexSetup.
- * Class is intended to be operated from the <b>user interface Menu</b>.
+ * Class is intended to be operated from the <b>user interface Menu</b> and can
+ * be built again after its files or options change.
  * 
  * A concrete implementation of <code>Indexer.interface</code> and the abstract
  * <code>IndexSetup.class</code>.
@@ -28,10 +26,7 @@ import java.util.concurrent.*;
  * 
  */
 public class IndexBuilder extends IndexSetup {
-	private ConcurrentSkipListMap<String, WordDetail> index = new ConcurrentSkipListMap<>();// thread safe map
-	private Set<String> stopWords = new ConcurrentSkipListSet<>();// thread safe set
-	private int lineCounter; // counter as each line is parsed
-	private int page = 1;// page number, one page = 40 lines
+	private Set<String> stopWords = Set.of();// stop words, shared with other builders until changed
 
 	/**
 	 * Constructor of the IndexBuilder class, creates a new instance of the class.
@@ -49,69 +44,48 @@ public class IndexBuilder extends IndexSetup {
 	 * @see #setOutputFile(String)
 	 */
 	public void buildIndex() {// O(n) due to called methods
-		int progress = 0;
-		int progressSize = 100;
-
-		virtualThreadParse(super.stopWordsFile, 1);// O(n) method
-		printProgress(progress += 20, progressSize);// O(n) method
-
-		parse(super.textFile);
-		printProgress(progress += 20, progressSize);// O(n) method
-
-		virtualThreadParse(super.dictionaryFile, 2);// O(n) method
-		printProgress(progress += 20, progressSize);// O(n) method
-
-		removeStopWords();// O(n) method
-		if (super.removeNullDefinition == true) {
-			removeNullDefinition();// O(n) method
-		}
-		printProgress(progress += 20, progressSize);// O(n) method
+		createIndex();// O(n) method
 
 		outputIndex();// O(n) method
-		printProgress(progress += 20, progressSize);// O(n) method
+		printProgress(100, 100);// O(n) method
 	}
 
 	/**
-	 * {@inheritDoc} This implementation of parse is intended for the use of parsing
-	 * the text file supplied by the user. It internally passes the parsed lines to
-	 * the processText method. Parsing of the dictionary and stop words files is
-	 * handled by buildIndex. Text File should be set first before use.
+	 * {@inheritDoc} Any previous index is discarded first. Stop words and
+	 * dictionary are taken from the cache shared by all builders and only parsed if
+	 * their files have changed.
 	 * 
-	 * @see #processText(String)
-	 * @see #buildIndex()
-	 * @see #setTextFile(String)
+	 * @see #loadStopWords(String)
+	 * @see #loadDictionary(String)
 	 */
-	public void parse(String file) {// O(n) where n is the amount of lines to parse. There is a loop
-		try {
-			Files.lines(Path.of(file)).forEach(line -> processText(line));// a loop.
+	public void createIndex() {// O(n) due to called methods
+		int progress = 0;
+		int progressSize = 100;
+		resetBuild();// O(1) method
 
-		} catch (Exception e) {
-			e.printStackTrace();
+		try {
+			stopWords = loadStopWords(super.stopWordsFile, super.execution);// O(1) if cached
+			printProgress(progress += 20, progressSize);// O(n) method
+
+			parse(super.textFile);// O(n) method
+			if (super.builtPositional)
+				repaginate(super.pageModel);
+			printProgress(progress += 20, progressSize);// O(n) method
+
+			addDefinitions(loadDictionary(super.dictionaryFile, super.execution));// O(n) method
+			printProgress(progress += 20, progressSize);// O(n) method
+		} catch (IOException e) {
+			throw publishFailure(new IndexingException("Cannot read the stop words or dictionary", e));
+		} catch (RuntimeException e) {
+			throw publishFailure(e);// O(s) method, subscribers waiting are sent the error
 		}
-	}
 
-	/*
-	 * A virtual thread variation of parse. Kept private as it calls another method
-	 * based on parameters. Knowledge of method workings required to use it. Parses
-	 * the dictionary and stop word files.
-	 * 
-	 * @param file: the file to parsed
-	 * 
-	 * @param method: the method to call
-	 */
-	private void virtualThreadParse(String file, int method) {// O(n) worst case.
-		try (var es = Executors.newVirtualThreadPerTaskExecutor()) {
-			Files.lines(Path.of(file)).forEach(line -> es.execute(() -> {// a loop
-				if (method == 1) {
-					processStopWords(line);// O(n) method
-				} else if (method == 2) {
-					processDictionary(line);// O(log n) method
-				}
-			}));
-
-		} catch (Exception e) {
-			e.printStackTrace();
+		removeStopWords();// O(n) method
+		if (super.removeNullDefinition == true) {
+			removeNullDefinition();// O(n) method
 		}
+		publishIndex();// O(s) method
+		printProgress(progress += 20, progressSize);// O(n) method
 	}
 
 	/**
@@ -119,22 +93,20 @@ public class IndexBuilder extends IndexSetup {
 	 * 
 	 * @see #setTextFile(String)
 	 */
-	public void processText(String line) {// O(n) where n is the amount of words to process.
-		line = line.toLowerCase().trim().replaceAll("[^a-zA-Z]", " ");
-		Arrays.stream(line.split("\\s+")).forEach(word -> {// a loop.
-			if (index.containsKey(word)) {// O(log n)
-				var wordDetail = index.get(word);// O(log n)
-				wordDetail.addPage(page);
-			} else {
-				var wordDetail = new WordDetail(word);
-				wordDetail.addPage(page);
+	protected void processWords(String line, String[] words) {// O(n) where n is the amount of words to process.
+		startLine(line, countWords(words));
+		int offset = 0;
+		for (String word : words) {// a loop.
+			var wordDetail = index.get(word);// O(log n)
+			if (wordDetail == null) {
+				wordDetail = new WordDetail(word);
 				index.put(word, wordDetail);// O(log n)
 			}
-		});
-		lineCounter++;
-		if (lineCounter % 40 == 0) {
-			page++;
+			addOccurrence(wordDetail, offset);
+			if (!word.isEmpty())
+				offset++;
 		}
+		endLine();
 	}
 
 	/**
@@ -158,10 +130,20 @@ public class IndexBuilder extends IndexSetup {
 	 * @see #setStopWordsFile(String)
 	 */
 	public void processStopWords(String line) {// O(n) where n is the amount of words.
+		if (!(stopWords instanceof ConcurrentSkipListSet))
+			stopWords = new ConcurrentSkipListSet<>(stopWords);// copied before the first change
 		Arrays.stream(line.split("\\s+")).forEach(word -> stopWords.add(word.toLowerCase()));// a loop.
 
 	}
 
+	/**
+	 * {@inheritDoc} Words other than stop words are indexed.
+	 */
+	@Override
+	protected ConcurrentSkipListMap<String, WordDetail> targetOf(String word) {// O(log n) set lookup
+		return word.isEmpty() || stopWords.contains(word) ? null : index;
+	}
+
 	/*
 	 * Removes all stop words from the index as well as the "" key that results from
 	 * the parsing of the files. Private as only used in buildIndex and not required
@@ -203,41 +185,28 @@ public class IndexBuilder extends IndexSetup {
 	 * (a-z) or reverse order (z-a).
 	 * 
 	 * @param naturalOrder <b>true</b> for natural, <b>false</b> for reverse
+	 * @see #printAllWords(IndexOrdering)
 	 */
-	public void printAllWords(boolean naturalOrder) {
-		var order = naturalOrder ? index.keySet() : index.descendingKeySet();
-		int counter = 0;
-		for (String string : order) {
-			System.out.print(string + ", ");
-			counter++;
-			if (counter % 5 == 0) {
-				System.out.println();
-			}
-		}
+	public void printAllWords(boolean naturalOrder) {// O(n log n / p) method
+		printAllWords(naturalOrder ? IndexOrdering.ALPHABETICAL : IndexOrdering.REVERSE_ALPHABETICAL);
 	}
 
 	/**
 	 * {@inheritDoc} Output File should be set first before use.
 	 * 
 	 * @see #setOutputFile(String)
+	 * @see #setParallelOutput(boolean)
+	 * @see #setOrdering(IndexOrdering)
 	 */
-	public void outputIndex() {// O(n) worst case from loop
-		try (FileWriter fw = new FileWriter(new File(super.outputFile))) {
+	public void outputIndex() {// O(n) due to IndexWriter
+		try {
+			String header = null;
 			if (super.displayUniqueWordCount == true) {
-				fw.write("Total Unique Words: " + uniqueWordCount() + "\n\n");// O(n) method
-			}
-
-			Set<Entry<String, WordDetail>> keys = index.entrySet();
-			for (Entry<String, WordDetail> e : keys) {// a loop
-				var wordDetail = e.getValue();// O(1) instead of O(log n) as its a set
-				fw.write(e.getKey() + "\n");// O(1)
-				fw.write("\tDefinitions:\n");
-				fw.write("\t" + wordDetail.getDefinition() + "\n\n");
-				fw.write("\tPages:\n");
-				fw.write("\t" + wordDetail.getPages() + "\n\n");
+				header = "Total Unique Words: " + uniqueWordCount() + "\n\n";// O(n) method
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
+			writeIndex(index, header, super.outputFile);// O(n) method
+		} catch (IOException e) {
+			throw new IndexingException("Cannot write index to " + super.outputFile, e);
 		}
 	}
 
@@ -0,0 +1,38 @@
+package ie.atu.sw;
+
+/**
+ * The interface IndexItem is an item of the stream of a finished index
+ * published by IndexPublisher: a Header with the unique word count if it is
+ * displayed, followed by a Word for each entry of the index in natural order.
+ * They are the items of the file written by outputIndex in the default
+ * ordering, whatever ordering is set.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexPublisher
+ */
+public sealed interface IndexItem {
+
+	/**
+	 * The record Header is the first item of a stream when the unique word count
+	 * is displayed.
+	 *
+	 * @param uniqueWords the number of words occurring only once
+	 *
+	 * @see IndexSetup#setDisplayUniqueWordCount(boolean)
+	 */
+	record Header(int uniqueWords) implements IndexItem {
+	}
+
+	/**
+	 * The record Word is an entry of the index.
+	 *
+	 * @param word   the word
+	 * @param detail the definition and pages of the word, not to be changed
+	 *               and not changed by a re-index
+	 */
+	record Word(String word, WordDetail detail) implements IndexItem {
+	}
+}
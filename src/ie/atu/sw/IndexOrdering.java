@@ -0,0 +1,63 @@
+package ie.atu.sw;
+
+import java.util.List;
+
+/**
+ * The enum IndexOrdering lists the orders an index can be printed or written
+ * in. Words that tie on the key of an ordering are kept in natural order.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see FrozenIndex
+ * @see IndexSetup#setOrdering(IndexOrdering)
+ */
+public enum IndexOrdering {
+	/** natural order (a-z), the default */
+	ALPHABETICAL,
+	/** reverse order (z-a) */
+	REVERSE_ALPHABETICAL,
+	/** most occurrences first */
+	FREQUENCY,
+	/** earliest first page first, words on no page last */
+	FIRST_PAGE,
+	/** most distinct pages first */
+	DISTINCT_PAGES;
+
+	/*
+	 * Returns the sort key of a word, a lower key sorting first. Never negative,
+	 * so it can be packed above the term id in a long. Package-private, used by
+	 * FrozenIndex.
+	 *
+	 * @param detail: the details of the word
+	 *
+	 * @param termId: the position of the word in natural order
+	 */
+	int rank(WordDetail detail, int termId) {// O(1), O(p) for DISTINCT_PAGES where p is the amount of pages
+		List<Integer> pages = detail.getPages();
+		return switch (this) {
+		case ALPHABETICAL -> 0;
+		case REVERSE_ALPHABETICAL -> Integer.MAX_VALUE - termId;
+		case FREQUENCY -> Integer.MAX_VALUE - pages.size();
+		case FIRST_PAGE -> pages.isEmpty() ? Integer.MAX_VALUE : pages.get(0);
+		case DISTINCT_PAGES -> Integer.MAX_VALUE - distinct(pages);
+		};
+	}
+
+	/*
+	 * Counts the distinct pages of a list of pages in order.
+	 *
+	 * @param pages: the pages, once for each occurrence
+	 */
+	private static int distinct(List<Integer> pages) {// O(p) due to loop
+		int count = 0;
+		int previous = -1;
+		for (int page : pages) {// a loop
+			if (page != previous)
+				count++;
+			previous = page;
+		}
+		return count;
+	}
+}
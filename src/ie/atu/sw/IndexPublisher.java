@@ -0,0 +1,278 @@
+package ie.atu.sw;
+
+import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The class IndexPublisher publishes the entries of a finished index as a
+ * stream of IndexItems in natural order, to consumers such as a database
+ * loader that can start as soon as the index is cleaned up rather than once the
+ * whole file is written. The items are a Header if the unique word count is
+ * displayed, then a Word for each entry left after words with no definition
+ * are removed. Only the index of a builder is published, never the stop words
+ * index of a DualIndexBuilder.
+ *
+ * Each subscriber is sent the whole stream on a virtual thread of its own,
+ * never sent more items than it has requested, so a slow subscriber holds back
+ * only its own stream and nothing is buffered for it. A subscriber that
+ * subscribes before the index is published is sent the stream once it is, or
+ * an error if the build fails. The index published is a copy, so a later build
+ * or re-index does not change a stream already started.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexItem
+ * @see IndexSetup#publisher()
+ */
+public class IndexPublisher implements Flow.Publisher<IndexItem> {
+	private final List<IndexSubscription> waiting = new ArrayList<>();// subscribed before publishing, guarded by this
+	private SortedMap<String, WordDetail> index;// the published index, null until published, guarded by this
+	private boolean header;// true to send the unique word count first, guarded by this
+	private IndexItem.Header counted;// the unique word count once counted, guarded by this
+
+	/**
+	 * Constructor of the IndexPublisher class, creates a publisher with no index
+	 * published yet.
+	 */
+	public IndexPublisher() {
+		super();
+	}
+
+	/**
+	 * {@inheritDoc} The subscriber is sent the stream once the index is
+	 * published, at once if it already is.
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super IndexItem> subscriber) {// O(1) starts a thread
+		var subscription = new IndexSubscription(Objects.requireNonNull(subscriber));
+		subscriber.onSubscribe(subscription);
+		synchronized (this) {
+			if (index == null) {
+				waiting.add(subscription);
+				return;
+			}
+		}
+		subscription.start(this::items);
+	}
+
+	/**
+	 * Returns true once the index is published.
+	 *
+	 * @return boolean true if published
+	 */
+	public synchronized boolean isPublished() {// O(1) one action
+		return index != null;
+	}
+
+	/*
+	 * Publishes a finished index, starting the stream of every subscriber waiting
+	 * for it. Package-private, called by IndexSetup once the index is cleaned up.
+	 *
+	 * @throws IllegalStateException if an index is already published
+	 *
+	 * @param index: a copy of the index, not changed afterwards
+	 *
+	 * @param header: true to send the unique word count first
+	 */
+	void publish(SortedMap<String, WordDetail> index, boolean header) {// O(s) starts a thread per subscriber
+		List<IndexSubscription> started;
+		synchronized (this) {
+			if (this.index != null)
+				throw new IllegalStateException("index already published");
+			this.index = index;
+			this.header = header;
+			started = List.copyOf(waiting);
+			waiting.clear();
+		}
+		for (IndexSubscription subscription : started) {// a loop
+			subscription.start(this::items);
+		}
+	}
+
+	/*
+	 * Ends the stream of every subscriber waiting for an index with the error of
+	 * the build that failed to make it. Later subscribers wait for the next
+	 * build. Package-private, called by IndexSetup.
+	 *
+	 * @param error: the cause of the failure
+	 */
+	void fail(Throwable error) {// O(s) starts a thread per subscriber
+		List<IndexSubscription> failed;
+		synchronized (this) {
+			if (index != null)
+				return;
+			failed = List.copyOf(waiting);
+			waiting.clear();
+		}
+		for (IndexSubscription subscription : failed) {// a loop
+			subscription.fail(error);
+		}
+	}
+
+	/*
+	 * Returns the items of the published index in order. The unique word count is
+	 * counted the first time it is needed, on the thread of a stream.
+	 */
+	private Iterator<IndexItem> items() {// O(1), O(n) the first time the count is needed
+		SortedMap<String, WordDetail> index;
+		IndexItem.Header first = null;
+		synchronized (this) {
+			index = this.index;
+			if (header && counted == null)
+				counted = new IndexItem.Header(uniqueWordCount(index));// O(n) method
+			if (header)
+				first = counted;
+		}
+		return Stream.concat(Stream.ofNullable(first), index.entrySet().stream()
+				.map(e -> (IndexItem) new IndexItem.Word(e.getKey(), e.getValue()))).iterator();
+	}
+
+	/*
+	 * Counts the words of an index that occur only once.
+	 *
+	 * @param index: the index to count
+	 */
+	private static int uniqueWordCount(SortedMap<String, WordDetail> index) {// O(n) due to loop
+		int counter = 0;
+		for (WordDetail wordDetail : index.values()) {// a loop
+			if (wordDetail.isUnique() == true)
+				counter++;
+		}
+		return counter;
+	}
+
+	/*
+	 * The subscription of one subscriber. Its stream runs on a virtual thread that
+	 * waits whenever every item requested has been sent.
+	 */
+	private static class IndexSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super IndexItem> subscriber;// the subscriber sent the stream
+		private final ReentrantLock lock = new ReentrantLock();// guards the demand
+		private final Condition demanded = lock.newCondition();// signalled on a request or cancel
+		private long demand;// items requested and not yet sent
+		private boolean cancelled;// true once cancelled or ended with an error
+		private IllegalArgumentException invalid;// a request of less than one item, sent as an error
+
+		/*
+		 * @param subscriber: the subscriber sent the stream
+		 */
+		IndexSubscription(Flow.Subscriber<? super IndexItem> subscriber) {// O(1) one action
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {// O(1) one action
+			lock.lock();
+			try {
+				if (n <= 0)
+					invalid = new IllegalArgumentException("request must be at least 1: " + n);
+				else
+					demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;// unbounded once it overflows
+				demanded.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void cancel() {// O(1) one action
+			lock.lock();
+			try {
+				cancelled = true;
+				demanded.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/*
+		 * Starts the stream on a virtual thread of its own.
+		 *
+		 * @param items: supplies the items to send, called on the new thread
+		 */
+		void start(Supplier<Iterator<IndexItem>> items) {// O(1) starts a thread
+			Thread.ofVirtual().name("index-publisher").start(() -> run(items));
+		}
+
+		/*
+		 * Ends the stream with an error on a virtual thread of its own, unless it
+		 * is cancelled.
+		 *
+		 * @param error: the error sent
+		 */
+		void fail(Throwable error) {// O(1) starts a thread
+			Thread.ofVirtual().name("index-publisher").start(() -> {
+				if (end())
+					subscriber.onError(error);
+			});
+		}
+
+		/*
+		 * Sends each item once it is requested, then completes the stream. A
+		 * failure, or an invalid request, ends the stream with an error.
+		 *
+		 * @param items: supplies the items to send
+		 */
+		private void run(Supplier<Iterator<IndexItem>> items) {// O(n) due to loop
+			try {
+				for (Iterator<IndexItem> it = items.get(); it.hasNext();) {// a loop
+					if (!awaitDemand())
+						return;
+					subscriber.onNext(it.next());
+				}
+				if (end())
+					subscriber.onComplete();
+			} catch (Throwable e) {
+				if (e instanceof InterruptedException)
+					Thread.currentThread().interrupt();
+				if (end())
+					subscriber.onError(e);
+			}
+		}
+
+		/*
+		 * Waits until an item is requested, then takes it from the demand. Returns
+		 * false if the subscription is cancelled.
+		 *
+		 * @throws IllegalArgumentException if less than one item was requested
+		 */
+		private boolean awaitDemand() throws InterruptedException {// O(1) blocks until requested
+			lock.lock();
+			try {
+				while (demand == 0 && !cancelled && invalid == null) {// a loop
+					demanded.await();
+				}
+				if (cancelled)
+					return false;
+				if (invalid != null)
+					throw invalid;
+				if (demand != Long.MAX_VALUE)
+					demand--;
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/*
+		 * Ends the subscription, returning true if it was not already cancelled so
+		 * the subscriber is to be told how the stream ended.
+		 */
+		private boolean end() {// O(1) one action
+			lock.lock();
+			try {
+				boolean open = !cancelled;
+				cancelled = true;
+				return open;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
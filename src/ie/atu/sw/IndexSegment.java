@@ -0,0 +1,264 @@
+package ie.atu.sw;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * The class IndexSegment reads and writes an index as a sorted binary file, a
+ * segment. Entries are written in the order of the index: the word, its
+ * definition if any, its pages delta encoded as variable length integers and,
+ * for a positional index, its positions. Segments are read back one entry at a
+ * time, so segments larger than the heap can be merged.
+ *
+ * Used by the ShardWorker to hand its index to the ShardCoordinator, and to
+ * hold the partial indexes of a Checkpoint.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see ShardWorker
+ * @see ShardCoordinator
+ * @see Checkpoint
+ */
+public class IndexSegment {
+	private static final int MAGIC = 0x49445853;// "IDXS" at the start of every segment
+	private static final int VERSION = 1;// version of the format
+	private static final int HAS_DEFINITION = 1;// flag of an entry with a definition
+	private static final int HAS_POSITIONS = 2;// flag of an entry with positions
+
+	/*
+	 * Private constructor, the class has static methods only.
+	 */
+	private IndexSegment() {
+		super();
+	}
+
+	/**
+	 * Writes an index to a segment.
+	 *
+	 * @param file       the segment file
+	 * @param index      the index in natural order
+	 * @param pageOffset added to every page, the pages before the first page of
+	 *                   the text of the index
+	 * @param lineOffset added to the line of every position, the lines before the
+	 *                   first line of the text of the index
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path file, SortedMap<String, WordDetail> index, int pageOffset, int lineOffset)
+			throws IOException {// O(n) method
+		try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+			write(out, index, pageOffset, lineOffset);
+		}
+	}
+
+	/*
+	 * Writes an index as a segment to a stream, which is left open so a checkpoint
+	 * can hold more than one segment. Package-private, used by Checkpoint.
+	 *
+	 * @param out: the stream to write to
+	 *
+	 * @param index: the index in natural order
+	 *
+	 * @param pageOffset: added to every page
+	 *
+	 * @param lineOffset: added to the line of every position
+	 */
+	static void write(DataOutputStream out, SortedMap<String, WordDetail> index, int pageOffset, int lineOffset)
+			throws IOException {// O(n) where n is the amount of pages and positions
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(index.size());
+		for (Entry<String, WordDetail> e : index.entrySet()) {// a loop
+			WordDetail wordDetail = e.getValue();
+			String definition = wordDetail.getDefinition();
+			PositionList positions = wordDetail.getPositions();
+			out.writeByte((definition != null ? HAS_DEFINITION : 0) | (positions != null ? HAS_POSITIONS : 0));
+			writeString(out, e.getKey());
+			if (definition != null)
+				writeString(out, definition);
+			List<Integer> pages = wordDetail.getPages();
+			writeVarInt(out, pages.size());
+			int last = 0;
+			for (int page : pages) {// a loop
+				writeVarInt(out, page + pageOffset - last);
+				last = page + pageOffset;
+			}
+			if (positions != null) {
+				long[] all = positions.toArray();// O(p)
+				writeVarInt(out, all.length);
+				for (long position : all) {// a loop
+					writeVarInt(out, PositionList.line(position) + lineOffset);
+					writeVarInt(out, PositionList.offset(position));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens a segment to be read one entry at a time, in the order it was written.
+	 * The reader should be closed after use.
+	 *
+	 * @param file the segment file
+	 * @return Reader of the entries
+	 * @throws IOException if the file cannot be read or is not a segment
+	 */
+	public static Reader open(Path file) throws IOException {// O(1) reads the header
+		var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+		try {
+			return new Reader(in);
+		} catch (IOException e) {
+			in.close();
+			throw new IOException("not an index segment: " + file, e);
+		}
+	}
+
+	/**
+	 * Reads a whole segment into a new index.
+	 *
+	 * @param file the segment file
+	 * @return the index in natural order
+	 * @throws IOException if the file cannot be read or is not a segment
+	 */
+	public static SortedMap<String, WordDetail> read(Path file) throws IOException {// O(n) method
+		try (var reader = open(file)) {
+			return read(reader);// O(n) method
+		}
+	}
+
+	/*
+	 * Reads a segment from a stream into a new index, leaving the stream after its
+	 * last entry. Package-private, used by Checkpoint.
+	 *
+	 * @param in: the stream to read from
+	 */
+	static SortedMap<String, WordDetail> read(DataInputStream in) throws IOException {// O(n) method
+		return read(new Reader(in));
+	}
+
+	/*
+	 * Reads every remaining entry of a reader into a new index.
+	 *
+	 * @param reader: the reader of the segment
+	 */
+	private static SortedMap<String, WordDetail> read(Reader reader) throws IOException {// O(n log n) due to loop
+		SortedMap<String, WordDetail> index = new TreeMap<>();
+		try {
+			while (reader.hasNext()) {// a loop
+				var e = reader.next();
+				index.put(e.getKey(), e.getValue());// O(log n)
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return index;
+	}
+
+	/**
+	 * Reads the entries of a segment in order. Failures to read are thrown as
+	 * UncheckedIOException by the iterator methods.
+	 */
+	public static class Reader implements Iterator<Entry<String, WordDetail>>, Closeable {
+		private final DataInputStream in;// the segment
+		private int remaining;// entries not yet read
+
+		/*
+		 * Reads and checks the header of a segment.
+		 *
+		 * @param in: the stream of the segment
+		 */
+		private Reader(DataInputStream in) throws IOException {// O(1) reads the header
+			this.in = in;
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("bad segment header");
+			remaining = in.readInt();
+		}
+
+		@Override
+		public boolean hasNext() {// O(1) one action
+			return remaining > 0;
+		}
+
+		@Override
+		public Entry<String, WordDetail> next() {// O(p) where p is the amount of pages and positions
+			if (remaining == 0)
+				throw new NoSuchElementException();
+			try {
+				int flags = in.readByte();
+				String word = readString(in);
+				WordDetail wordDetail = new WordDetail(word);
+				if ((flags & HAS_DEFINITION) != 0)
+					wordDetail.setDefinition(readString(in));
+				int pages = readVarInt(in);
+				int page = 0;
+				for (int i = 0; i < pages; i++) {// a loop
+					page += readVarInt(in);
+					wordDetail.addPage(page);
+				}
+				if ((flags & HAS_POSITIONS) != 0) {
+					int positions = readVarInt(in);
+					for (int i = 0; i < positions; i++) {// a loop
+						wordDetail.addPosition(readVarInt(in), readVarInt(in));
+					}
+				}
+				remaining--;
+				return Map.entry(word, wordDetail);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {// O(1) one action
+			in.close();
+		}
+	}
+
+	/*
+	 * Writes a String as its length and UTF-8 bytes, without the 64KB limit of
+	 * writeUTF.
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {// O(n) length of s
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/*
+	 * Reads a String written by writeString.
+	 */
+	private static String readString(DataInputStream in) throws IOException {// O(n) length of the String
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * Writes a non negative int in 7 bit groups, low group first, the high bit set
+	 * on every byte but the last.
+	 */
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {// O(1) at most 5 bytes
+		while ((value & ~0x7f) != 0) {// a loop
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/*
+	 * Reads an int written by writeVarInt.
+	 */
+	private static int readVarInt(DataInputStream in) throws IOException {// O(1) at most 5 bytes
+		int value = 0;
+		for (int shift = 0;; shift += 7) {// a loop
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The class IndexServer is a long running local indexing service. The
+ * dictionary and stop words are parsed <b>once</b> when the server is created
+ * and kept in memory by the source cache of IndexSetup, every index built
+ * afterwards only has to parse its text. A source is parsed again only if its
+ * file changes. Requests are served on the loopback address only, each on its
+ * own virtual thread, and all results are returned as JSON.
+ *
+ * Being on the loopback address does not stop a web page in the user's browser
+ * from sending requests to it, so every request must name a loopback host in
+ * its Host header, which a page reached through DNS rebinding does not, and a
+ * request from a browser must come from the same origin. Indexes are only built
+ * by a POST, and only from texts and to outputs under the root directory of the
+ * server.
+ *
+ * <ul>
+ * <li><b>/index</b> (POST) builds an index. Parameters: <code>text</code> (required)
+ * path to the text file under the root, <code>type</code> 1 for the index that excludes stop
+ * words (default) or 2 for the stop words only index, <code>output</code>
+ * optional path under the root to write the index to, <code>unique</code> and
+ * <code>removeNull</code> true or false. Without an output path the index
+ * itself is returned.</li>
+ * <li><b>/lookup</b> (GET) looks up a <code>word</code> in the dictionary and stop
+ * words.</li>
+ * <li><b>/status</b> (GET) returns the size of the dictionary and stop words.</li>
+ * </ul>
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#loadStopWords(String)
+ * @see IndexSetup#loadDictionary(String)
+ * @see Runner
+ */
+public class IndexServer {
+	private final HttpServer server;// JDK built in http server
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();// one virtual thread per request
+	private final String stopWordsFile;// stop words shared by every build
+	private final String dictionaryFile;// dictionary shared by every build
+	private final Path root;// texts are read and indexes written under it only
+
+	/**
+	 * Constructor of the IndexServer class, parses the dictionary and stop words
+	 * and binds the server to the loopback address. Texts and outputs must be
+	 * under the working directory. The server does not accept requests until
+	 * started.
+	 *
+	 * @param dictionaryFile String for dictionary file location
+	 * @param stopWordsFile  String for stop words file location
+	 * @param port           the port to listen on, 0 for any free port
+	 * @throws IOException if a file cannot be read or the port cannot be bound
+	 * @see #start()
+	 */
+	public IndexServer(String dictionaryFile, String stopWordsFile, int port) throws IOException {// O(n) parses
+		this(dictionaryFile, stopWordsFile, port, Path.of(""));
+	}
+
+	/**
+	 * Constructor of the IndexServer class, parses the dictionary and stop words
+	 * and binds the server to the loopback address. The server does not accept
+	 * requests until started.
+	 *
+	 * @param dictionaryFile String for dictionary file location
+	 * @param stopWordsFile  String for stop words file location
+	 * @param port           the port to listen on, 0 for any free port
+	 * @param root           the directory texts are read from and indexes written
+	 *                       to, paths of a request are resolved against it
+	 * @throws IOException if a file cannot be read, the root does not exist or
+	 *                     the port cannot be bound
+	 * @see #start()
+	 */
+	public IndexServer(String dictionaryFile, String stopWordsFile, int port, Path root)
+			throws IOException {// O(n) parses
+		this.stopWordsFile = stopWordsFile;
+		this.dictionaryFile = dictionaryFile;
+		this.root = root.toRealPath();// O(1) symbolic links resolved
+		IndexSetup.loadStopWords(stopWordsFile);// O(n) method, warms the cache
+		IndexSetup.loadDictionary(dictionaryFile);// O(n) method, warms the cache
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.setExecutor(executor);
+	}
+
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {// O(1) four actions
+		server.createContext("/index", this::handleIndex);// once constructed, not escaping the constructor
+		server.createContext("/lookup", this::handleLookup);
+		server.createContext("/status", this::handleStatus);
+		server.start();
+	}
+
+	/**
+	 * Stops the server, waiting up to the given number of seconds for requests
+	 * being served to finish.
+	 *
+	 * @param delay seconds to wait
+	 */
+	public void stop(int delay) {// O(1) two actions
+		server.stop(delay);
+		executor.close();
+	}
+
+	/**
+	 * Gets the port the server is listening on.
+	 *
+	 * @return int port number
+	 */
+	public int getPort() {// O(1) one action only
+		return server.getAddress().getPort();
+	}
+
+	/*
+	 * Builds an index for the request using a new builder, the builder finds the
+	 * dictionary and stop words already parsed in the cache.
+	 *
+	 * @param exchange: the request and response
+	 */
+	private void handleIndex(HttpExchange exchange) throws IOException {// O(n) due to createIndex()
+		if (!accepted(exchange, "POST"))
+			return;
+		var params = parameters(exchange.getRequestURI());
+		String text = params.get("text");
+		if (text == null) {
+			send(exchange, 400, error("text parameter is required"));
+			return;
+		}
+		Path textPath = underRoot(text);
+		String output = params.get("output");
+		Path outputPath = output == null ? null : underRoot(output);
+		if (textPath == null || (output != null && outputPath == null)) {
+			send(exchange, 403, error("text and output must be under " + root));
+			return;
+		}
+		IndexSetup builder = switch (params.getOrDefault("type", "1")) {
+		case "1" -> new IndexBuilder();
+		case "2" -> new AlternateIndexBuilder();
+		default -> null;
+		};
+		if (builder == null) {
+			send(exchange, 400, error("type must be 1 or 2"));
+			return;
+		}
+		builder.setStopWordsFile(stopWordsFile);
+		builder.setDictionaryFile(dictionaryFile);
+		builder.setShowProgress(false);
+		builder.setTextFile(textPath.toString());
+		builder.setDisplayUniqueWordCount(Boolean.parseBoolean(params.get("unique")));
+		builder.setRemoveNullDefinition(Boolean.parseBoolean(params.get("removeNull")));
+
+		long start = System.nanoTime();
+		try {
+			if (output != null) {
+				builder.setOutputFile(outputPath.toString());
+				builder.buildIndex();// O(n) method
+			} else {
+				builder.createIndex();// O(n) method
+			}
+		} catch (Exception e) {
+			send(exchange, 500, error(String.valueOf(e.getMessage())));
+			return;
+		}
+		var index = builder.getIndex();
+
+		StringBuilder sb = new StringBuilder("{");
+		sb.append("\"text\":").append(quote(text));
+		sb.append(",\"output\":").append(quote(output));
+		sb.append(",\"words\":").append(index.size());
+		sb.append(",\"uniqueWords\":").append(builder.uniqueWordCount());// O(n) method
+		sb.append(",\"millis\":").append((System.nanoTime() - start) / 1_000_000);
+		if (output == null) {
+			sb.append(",\"index\":[");
+			boolean first = true;
+			for (Entry<String, WordDetail> e : index.entrySet()) {// a loop
+				if (!first)
+					sb.append(',');
+				first = false;
+				sb.append("{\"word\":").append(quote(e.getKey()));
+				sb.append(",\"definition\":").append(quote(e.getValue().getDefinition()));
+				sb.append(",\"pages\":").append(e.getValue().getPages().toString().replace(" ", ""));
+				sb.append('}');
+			}
+			sb.append(']');
+		}
+		sb.append('}');
+		send(exchange, 200, sb.toString());
+	}
+
+	/*
+	 * Looks up a word in the dictionary and stop words held in memory.
+	 *
+	 * @param exchange: the request and response
+	 */
+	private void handleLookup(HttpExchange exchange) throws IOException {// O(log n) stop words set lookup
+		if (!accepted(exchange, "GET"))
+			return;
+		Set<String> stopWords;
+		Map<String, String> dictionary;
+		try {
+			stopWords = IndexSetup.loadStopWords(stopWordsFile);// O(1) cached
+			dictionary = IndexSetup.loadDictionary(dictionaryFile);// O(1) cached
+		} catch (IOException e) {
+			send(exchange, 500, error("Cannot read the stop words or dictionary: " + e.getMessage()));
+			return;
+		}
+		String word = parameters(exchange.getRequestURI()).get("word");
+		if (word == null) {
+			send(exchange, 400, error("word parameter is required"));
+			return;
+		}
+		word = word.toLowerCase().trim();
+		send(exchange, 200, "{\"word\":" + quote(word) + ",\"stopWord\":" + stopWords.contains(word)
+				+ ",\"definition\":" + quote(dictionary.get(word)) + "}");
+	}
+
+	/*
+	 * Reports the size of the dictionary and stop words held in memory.
+	 *
+	 * @param exchange: the request and response
+	 */
+	private void handleStatus(HttpExchange exchange) throws IOException {// O(1) sizes only
+		if (!accepted(exchange, "GET"))
+			return;
+		int dictionaryWords;
+		int stopWords;
+		try {
+			dictionaryWords = IndexSetup.loadDictionary(dictionaryFile).size();// O(1) cached
+			stopWords = IndexSetup.loadStopWords(stopWordsFile).size();// O(1) cached
+		} catch (IOException e) {
+			send(exchange, 500, error("Cannot read the stop words or dictionary: " + e.getMessage()));
+			return;
+		}
+		send(exchange, 200, "{\"dictionaryWords\":" + dictionaryWords + ",\"stopWords\":" + stopWords + "}");
+	}
+
+	/*
+	 * Checks the method, host and origin of a request, sending an error and
+	 * returning false if it is not accepted. The host must be a loopback name, so
+	 * a page that rebinds its own name to the loopback address is refused, and a
+	 * browser request must come from the server's own origin.
+	 *
+	 * @param exchange: the request and response
+	 *
+	 * @param method: the method the endpoint accepts
+	 */
+	private boolean accepted(HttpExchange exchange, String method) throws IOException {// O(1) compares headers
+		if (!exchange.getRequestMethod().equals(method)) {
+			exchange.getResponseHeaders().set("Allow", method);
+			send(exchange, 405, error(method + " required"));
+			return false;
+		}
+		String host = exchange.getRequestHeaders().getFirst("Host");
+		if (host == null || !isLoopback(host)) {
+			send(exchange, 403, error("host not allowed"));
+			return false;
+		}
+		String origin = exchange.getRequestHeaders().getFirst("Origin");
+		if (origin != null && !origin.equals("http://" + host)) {
+			send(exchange, 403, error("origin not allowed"));
+			return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Returns true if a Host header names a loopback address and the port of the
+	 * server.
+	 *
+	 * @param host: the Host header
+	 */
+	private boolean isLoopback(String host) {// O(1) one comparison for each name
+		for (String name : new String[] { "localhost", "127.0.0.1", "[::1]" }) {// a loop
+			if (host.equalsIgnoreCase(name + ":" + getPort()))
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Resolves a path of a request against the root, returning null if it is not
+	 * under the root. Symbolic links are followed, for a file that does not exist
+	 * yet those of its directory.
+	 *
+	 * @param path: the path of the request
+	 */
+	private Path underRoot(String path) {// O(d) where d is the depth of the path
+		try {
+			Path resolved = root.resolve(path).normalize();
+			Path real = Files.exists(resolved) ? resolved.toRealPath()
+					: resolved.getParent().toRealPath().resolve(resolved.getFileName());
+			return real.startsWith(root) && !real.equals(root) ? real : null;
+		} catch (IOException | RuntimeException e) {
+			return null;// a directory that does not exist or an invalid path
+		}
+	}
+
+	/*
+	 * Splits the query of a request into decoded name and value pairs.
+	 *
+	 * @param uri: the request uri
+	 */
+	private static Map<String, String> parameters(URI uri) {// O(n) where n is the amount of parameters
+		Map<String, String> params = new HashMap<>();
+		String query = uri.getRawQuery();
+		if (query == null)
+			return params;
+		for (String pair : query.split("&")) {// a loop
+			int eq = pair.indexOf('=');
+			if (eq > 0) {
+				params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return params;
+	}
+
+	/*
+	 * Writes a JSON response and closes the exchange.
+	 *
+	 * @param exchange: the request and response
+	 *
+	 * @param status: http status code
+	 *
+	 * @param json: the response body
+	 */
+	private static void send(HttpExchange exchange, int status, String json) throws IOException {// O(n) write of body
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	/*
+	 * Creates a JSON error object.
+	 *
+	 * @param message: the error message
+	 */
+	private static String error(String message) {// O(n) due to quote
+		return "{\"error\":" + quote(message) + "}";
+	}
+
+	/*
+	 * Quotes and escapes a string as a JSON string, null becomes JSON null.
+	 *
+	 * @param s: the string to quote
+	 */
+	static String quote(String s) {// O(n) where n is the length of the string
+		if (s == null)
+			return "null";
+		StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++) {// a loop
+			char c = s.charAt(i);
+			switch (c) {
+			case '"' -> sb.append("\\\"");
+			case '\\' -> sb.append("\\\\");
+			case '\n' -> sb.append("\\n");
+			case '\r' -> sb.append("\\r");
+			case '\t' -> sb.append("\\t");
+			default -> {
+				if (c < 0x20)
+					sb.append(String.format("\\u%04x", (int) c));
+				else
+					sb.append(c);
+			}
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -1,5 +1,22 @@
 package ie.atu.sw;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
 /**
  * The class IndexSetup is an <b>abstract</b> class that contains instance
  * variable setter methods for any class extending it and acts as a
@@ -10,6 +27,31 @@ package ie.atu.sw;
  * usable by a subclass of this class. Implements Indexer, Parser and
  * ProgressBar.
  * 
+ * Parsed stop words and dictionaries are cached for the whole application and
+ * shared between every builder, a file is only parsed again when its
+ * modification time or size changes. State of a build is reset at the start of
+ * each build so a builder can be reused.
+ * 
+ * With change tracking on, a hash of each page is kept so a revised text can be
+ * re-indexed by tokenizing only the pages that changed.
+ * 
+ * With bigrams on, pairs of adjacent indexed words are recorded along with the
+ * pages they occur on.
+ * 
+ * Parsing of the sources and tokenizing of the text run by the execution
+ * settings: on virtual threads, a ForkJoinPool or sequentially, in batches of
+ * lines. Words are added to the index in the order of the text whatever the
+ * settings.
+ * 
+ * A build can run asynchronously on its own virtual thread, with a deadline and
+ * a progress listener, and be cancelled. Failures are thrown as an
+ * IndexingException whether the build is run directly or asynchronously.
+ * 
+ * A built index can be frozen and printed or written in other orderings than
+ * natural order. Once cleaned up it is published to subscribers as a stream
+ * of entries while it is written. A positional index gives the text around each
+ * occurrence of a word from the memory mapped text and the line table.
+ * 
  * @author Richard Daly
  * @version 1
  * @since Java 19.
@@ -17,6 +59,13 @@ package ie.atu.sw;
  * @see Indexer
  * @see Parser
  * @see ProgressBar
+ * @see PageHashes
+ * @see IndexBuild
+ * @see BigramIndex
+ * @see ExecutionSettings
+ * @see FrozenIndex
+ * @see IndexPublisher
+ * @see Concordance
  * 
  */
 public abstract class IndexSetup implements Indexer, Parser, ProgressBar {
@@ -24,14 +73,86 @@ public abstract class IndexSetup implements Indexer, Parser, ProgressBar {
 	protected boolean displayUniqueWordCount;
 	/** Instance variable for remove null definitions option */
 	protected boolean removeNullDefinition;
-	/** file location for stop words to be parsed */
+	/** file location for stop words to be parsed, may be compressed */
 	protected String stopWordsFile;
-	/** file location for dictionary to be parsed */
+	/** file location for dictionary to be parsed, may be compressed */
 	protected String dictionaryFile;
-	/** file location for text to be parsed */
+	/** file location for text to be parsed, may be compressed */
 	protected String textFile;
-	/** file location for output of index */
+	/** file location for output of index, compressed if named .gz, .zz or .deflate */
 	protected String outputFile;
+	/** Instance variable for formatting and writing the output in parallel */
+	protected boolean parallelOutput;
+	/** Instance variable for printing the progress bar to console */
+	protected boolean showProgress = true;
+	/** the index, thread safe map replaced at the start of each build */
+	protected ConcurrentSkipListMap<String, WordDetail> index = new ConcurrentSkipListMap<>();
+	/** counter as each line of text is parsed */
+	protected int lineCounter;
+	/** page number of the line being parsed */
+	protected int page = 1;
+	/** Instance variable for recording the position of each word */
+	protected boolean positional;
+	/** page model deciding the page of each line, 40 lines per page by default */
+	protected PageModel pageModel = PageModel.linesPerPage(40);
+	/** table of the lines parsed in the current build */
+	protected LineTable lineTable = new LineTable();
+	/** true if the current index was built with positions */
+	protected boolean builtPositional;
+	/** Instance variable for keeping a hash of each page to re-index changes */
+	protected boolean changeTracking;
+	/** hashes and words of each page of the current build, null if not tracked */
+	protected PageHashes pageHashes;
+	/** Instance variable for recording pairs of adjacent words */
+	protected boolean bigrams;
+	/** pairs of adjacent words of the current build, null if not recorded */
+	protected BigramIndex bigramIndex;
+	/** how parsing and tokenizing run, virtual threads by default */
+	protected ExecutionSettings execution = ExecutionSettings.defaults();
+	/** how lines are split into words, 8 bytes at a time by default */
+	protected Tokenizer tokenizer = Tokenizer.SWAR;
+	/** file the partial index is saved to while parsing the text, null for none */
+	protected String checkpointFile;
+	/** lines of text parsed between checkpoints */
+	protected int checkpointInterval;
+	/** lines of text parsed between live snapshots, 0 for none */
+	protected int snapshotInterval;
+	/** order the index is written in, natural order by default */
+	protected IndexOrdering ordering = IndexOrdering.ALPHABETICAL;
+
+	private static final Pattern SPACES = Pattern.compile("\\s+");// separates words
+
+	private BuildStamp builtStamp;// sources and options of the current build
+	private final AtomicReference<IndexBuild> running = new AtomicReference<>();// asynchronous build, if any
+	private volatile boolean stopRequested;// true once the asynchronous build is asked to stop
+	private volatile ProgressListener listener;// told of progress of the asynchronous build
+	private int previousTerm = -1;// term id of the last indexed word, -1 if none
+	private int previousLine;// line of the last indexed word
+	private int previousOffset;// word offset of the last indexed word
+	private Checkpoint.Recorder checkpoints;// saves checkpoints of the text being parsed, null if none
+	private final AtomicReference<IndexSnapshot> snapshot = new AtomicReference<>(IndexSnapshot.EMPTY);// latest
+	private SnapshotSealer sealer;// seals snapshots of the text being parsed, null if none
+	private volatile IndexPublisher publisher = new IndexPublisher();// entries of the last or next build
+	private String parsedText;// text file of the last build
+	private Concordance concordance;// text of the last build mapped for context, null until needed
+
+	// parsed sources shared by all builders, keyed by kind and absolute path
+	private static final Map<String, CachedSource> sourceCache = new ConcurrentHashMap<>();
+
+	/*
+	 * A parsed source along with the modification time and size of the file it was
+	 * parsed from.
+	 */
+	private record CachedSource(FileTime modified, long size, Object parsed) {
+	}
+
+	/*
+	 * The sources and options a build depends on other than the text. A change to
+	 * any of them means a re-index must build again from the start.
+	 */
+	private record BuildStamp(String stopWords, String dictionary, boolean removeNullDefinition,
+			PageModel pageModel) {
+	}
 
 	/**
 	 * Constructor of the IndexSetup class, as class is abstract a instance of this
@@ -55,6 +176,1021 @@ public abstract class IndexSetup implements Indexer, Parser, ProgressBar {
 	 */
 	public abstract void removeNullDefinition();// Running time decided by implementing class
 
+	/**
+	 * Adds the words of a line of text to the index. Called with the lines in the
+	 * order of the text, after they are tokenized.
+	 * 
+	 * @param line  the line as read
+	 * @param words the tokens of the line
+	 * @see #tokenize(String)
+	 */
+	protected abstract void processWords(String line, String[] words);// Decided by implementing class
+
+	/**
+	 * Returns the index a word of the text is added to. Used to patch the words of
+	 * changed pages when re-indexing.
+	 * 
+	 * @param word the lower case word
+	 * @return the index the word belongs to, null if the word is not indexed
+	 * @see #reindex()
+	 */
+	protected abstract ConcurrentSkipListMap<String, WordDetail> targetOf(String word);// Decided by implementing class
+
+	/**
+	 * Builds the index in memory from the information sources <b>without</b>
+	 * outputting it. Used by buildIndex and by callers that consume the index
+	 * directly such as the IndexServer.
+	 * 
+	 * @throws IndexingException if a source cannot be read
+	 * @see #buildIndex()
+	 * @see IndexServer
+	 */
+	public abstract void createIndex();// Running time decided by implementing class
+
+	/*
+	 * Returns a read only view of the index in natural order. Package-private so
+	 * the data structure stays hidden from users of the API.
+	 */
+	SortedMap<String, WordDetail> getIndex() {// O(1) creates a view only
+		return Collections.unmodifiableSortedMap(index);
+	}
+
+	/**
+	 * Resets the state of a build, a new empty index starting at line 0 and page
+	 * 1. Called at the start of each build so results of a previous build are not
+	 * mixed into the next.
+	 */
+	protected void resetBuild() {// O(1) eleven actions
+		index = new ConcurrentSkipListMap<>();
+		concordance = null;
+		if (publisher.isPublished())
+			publisher = new IndexPublisher();// subscribers waiting for an index carry over
+		lineCounter = 0;
+		page = 1;
+		lineTable = new LineTable();
+		builtPositional = positional;
+		pageHashes = changeTracking && !positional ? new PageHashes() : null;
+		builtStamp = stamp();
+		bigramIndex = bigrams ? new BigramIndex() : null;
+		previousTerm = -1;
+	}
+
+	/**
+	 * Records the start of the next line of text and sets the page it is on.
+	 * Called by processText before any words of the line are added. Stops the
+	 * build with a CancellationException if it has been cancelled.
+	 * 
+	 * @param line  the line as read
+	 * @param words the number of words on the line
+	 */
+	protected void startLine(String line, int words) {// O(n) where n is the length of the line
+		if (stopRequested)
+			throw new CancellationException("build stopped");
+		lineTable.add(line, words);// O(n) method
+		page = pageModel.pageOf(lineCounter, lineTable);// O(1)
+		if (pageHashes != null)
+			pageHashes.addLine(page, lineCounter, line);// O(n) method
+	}
+
+	/**
+	 * {@inheritDoc} The line is tokenized then its words added to the index.
+	 * 
+	 * @see #setTokenizer(Tokenizer)
+	 * 
+	 * @see #processWords(String, String[])
+	 */
+	public void processText(String line) {// O(n) where n is the length of the line
+		processWords(line, tokenize(line));
+	}
+
+	/**
+	 * {@inheritDoc} This implementation of parse is intended for the use of parsing
+	 * the text file supplied by the user, it may be compressed. Lines are read in
+	 * batches and each batch is tokenized by the execution settings, while the
+	 * words of batches already tokenized are added to the index in the order of
+	 * the text. No more than the parallelism of batches are tokenized ahead.
+	 * Parsing of the dictionary and stop words files is handled by createIndex.
+	 * With checkpoints set the build resumes from the last checkpoint of the same
+	 * text and options, then saves a checkpoint every interval of lines. The
+	 * checkpoint is deleted once the text is parsed. With snapshots set a snapshot
+	 * of the lines parsed is published every interval of lines.
+	 * 
+	 * @see #processText(String)
+	 * @see #setTextFile(String)
+	 * @see #setExecutionStrategy(ExecutionStrategy)
+	 * @see #setCheckpoint(String, int)
+	 * @see #setSnapshots(int)
+	 * @see Compression
+	 */
+	public void parse(String file) {// O(n / p) tokenizing where p is the parallelism, O(n) adding
+		sealer = snapshotInterval > 0 ? new SnapshotSealer(snapshotInterval, snapshot, this::isIndexed) : null;
+		parsedText = file;
+		try (var lines = Compression.lines(file); var sealing = sealer) {// plain, gzip or deflate
+			checkpoints = Checkpoint.Recorder.resume(this, file);// O(c) method where c is the size of the checkpoint
+			int resumed = checkpoints == null ? 0 : checkpoints.savedLines();
+			if (resumed > 0 && sealing != null)
+				sealRestored();// O(n) method
+			inBatches(lines.skip(resumed), execution, batch -> tokenize(batch, tokenizer), (batch, words) -> {
+				for (int i = 0; i < words.length; i++) {// a loop
+					processWords(batch.get(i), words[i]);
+				}
+				if (checkpoints != null)
+					checkpoints.linesParsed(lineCounter);// O(c) method when a checkpoint is due
+				if (sealing != null)
+					sealing.linesParsed(lineCounter);// O(1) method
+			});
+			if (sealing != null)
+				sealing.seal(lineCounter, keptWords());// O(1) method, O(d) if the dictionary is not cached
+			if (checkpoints != null)
+				checkpoints.delete();
+		} catch (IOException | UncheckedIOException e) {
+			throw new IndexingException("Cannot read text file " + file, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("interrupted while parsing " + file);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause)
+				throw cause;
+			throw new IndexingException("Cannot tokenize text file " + file, e.getCause());
+		} finally {
+			sealer = null;// waited for by the close of the try
+			checkpoints = null;
+		}
+	}
+
+	/**
+	 * Gets the indexes saved in a checkpoint, in the order they are restored.
+	 * Overridden by a builder with more than one index.
+	 * 
+	 * @return List of indexes
+	 */
+	protected List<ConcurrentSkipListMap<String, WordDetail>> checkpointIndexes() {// O(1) one action
+		return List.of(index);
+	}
+
+	/*
+	 * Seals the occurrences restored from a checkpoint as the first snapshot, so
+	 * snapshots of a resumed build cover the text from its first line.
+	 */
+	private void sealRestored() {// O(n) where n is the amount of occurrences restored
+		for (var e : index.entrySet()) {// a loop
+			PositionList positions = e.getValue().getPositions();
+			if (positions == null) {
+				for (int restored : e.getValue().getPages()) {// a loop
+					sealer.add(e.getKey(), restored);
+				}
+			} else {
+				for (long position : positions.toArray()) {// a loop
+					sealer.add(e.getKey(), pageModel.pageOf(PositionList.line(position), lineTable));
+				}
+			}
+		}
+		sealer.seal(lineCounter, false);
+	}
+
+	/*
+	 * Returns true if a word goes to the index, not to another index or none.
+	 * 
+	 * @param word: the word
+	 */
+	private boolean isIndexed(String word) {// O(log n) by targetOf
+		return targetOf(word) == index;
+	}
+
+	/*
+	 * Returns true for the words the index keeps once the text is parsed: every
+	 * word, or with null definitions removed the words the dictionary defines.
+	 */
+	private Predicate<String> keptWords() {// O(1) if the dictionary is cached, O(d) if it is parsed
+		if (!removeNullDefinition)
+			return word -> true;
+		try {
+			var dictionary = loadDictionary(dictionaryFile, execution);// the builder loads it next from the cache
+			return word -> dictionary.get(word) != null;
+		} catch (IOException e) {
+			throw new IndexingException("Cannot read dictionary " + dictionaryFile, e);
+		}
+	}
+
+	/*
+	 * Reads lines in batches and runs a task on each batch by the execution
+	 * settings. The result of each batch is handed to a consumer on the calling
+	 * thread in the order of the lines, no more than the parallelism of batches
+	 * run ahead of the consumer. Stops if the thread is interrupted.
+	 * 
+	 * @param lines: the lines to read
+	 * 
+	 * @param settings: how the tasks run
+	 * 
+	 * @param task: the work on a batch, run in parallel
+	 * 
+	 * @param consumer: takes a batch and its result, in order
+	 */
+	private static <T> void inBatches(Stream<String> lines, ExecutionSettings settings, Function<List<String>, T> task,
+			BiConsumer<List<String>, T> consumer) throws InterruptedException, ExecutionException {// O(n / p + n)
+		boolean sequential = settings.strategy() == ExecutionStrategy.SEQUENTIAL;
+		try (var es = sequential ? null : settings.strategy().newExecutor(settings.parallelism())) {
+			Deque<Entry<List<String>, Future<T>>> pending = new ArrayDeque<>();// batches running, oldest first
+			List<String> batch = new ArrayList<>(settings.batchSize());
+			for (Iterator<String> it = lines.iterator(); it.hasNext();) {// a loop
+				batch.add(it.next());
+				if (batch.size() < settings.batchSize() && it.hasNext())
+					continue;
+				if (Thread.currentThread().isInterrupted())
+					throw new InterruptedException();
+				if (sequential) {
+					consumer.accept(batch, task.apply(batch));
+				} else {
+					var submitted = batch;
+					pending.add(Map.entry(submitted, es.submit(() -> task.apply(submitted))));
+					if (pending.size() > settings.parallelism()) {
+						var oldest = pending.poll();
+						consumer.accept(oldest.getKey(), oldest.getValue().get());// waits for the batch
+					}
+				}
+				batch = new ArrayList<>(settings.batchSize());
+			}
+			while (!pending.isEmpty()) {// a loop
+				var oldest = pending.poll();
+				consumer.accept(oldest.getKey(), oldest.getValue().get());// waits for the batch
+			}
+		}
+	}
+
+	/*
+	 * Tokenizes a batch of lines.
+	 * 
+	 * @param lines: the lines of the batch
+	 *
+	 * @param tokenizer: the tokenizer backend
+	 */
+	private static String[][] tokenize(List<String> lines, Tokenizer tokenizer) {// O(n) where n is the length of the lines
+		String[][] words = new String[lines.size()][];
+		for (int i = 0; i < words.length; i++) {// a loop
+			words[i] = tokenizer.tokenize(lines.get(i));
+		}
+		return words;
+	}
+
+	/**
+	 * Tokenizes a line of text into lower case words of letters only. Any other
+	 * character separates words. The first token is empty if the line starts with
+	 * a separator. The tokenizer backend of the builder is used.
+	 * 
+	 * @param line the line as read
+	 * @return String[] of words
+	 * @see Tokenizer
+	 */
+	protected String[] tokenize(String line) {// O(n) where n is the length of the line
+		return tokenizer.tokenize(line);
+	}
+
+	/**
+	 * Counts the words of a tokenized line, ignoring the empty token left by a line
+	 * that starts with a non letter.
+	 * 
+	 * @param words the tokens of the line
+	 * @return int number of words
+	 */
+	protected static int countWords(String[] words) {// O(n) due to loop
+		int count = 0;
+		for (String word : words) {// a loop
+			if (!word.isEmpty())
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Records an occurrence of a word on the line being parsed, either its page or,
+	 * in a positional index, its position. With bigrams on, the pair it makes with
+	 * the indexed word before it is recorded too.
+	 * 
+	 * @param wordDetail the word that occurred
+	 * @param offset     the word offset on the line
+	 */
+	protected void addOccurrence(WordDetail wordDetail, int offset) {// O(1) one action
+		if (builtPositional) {
+			wordDetail.addPosition(lineCounter, offset);
+		} else {
+			wordDetail.addPage(page);
+			if (pageHashes != null)
+				pageHashes.addTerm(wordDetail.getWord());// O(1)
+		}
+		if (bigramIndex != null)
+			addBigram(wordDetail.getWord(), offset);// O(1) method
+		if (sealer != null)
+			sealer.add(wordDetail.getWord(), page);// O(1) method
+		if (checkpoints != null)
+			checkpoints.add(wordDetail, offset);// O(1) method
+	}
+
+	/*
+	 * Records the pair a word makes with the last indexed word if they are next to
+	 * each other in the text, on the same line or across a line break. The pair is
+	 * on the page of the second word. Words the builder does not index, such as
+	 * stop words parsed before they are removed, are left out.
+	 * 
+	 * @param word: the word that occurred
+	 * 
+	 * @param offset: the word offset on the line
+	 */
+	private void addBigram(String word, int offset) {// O(1) amortised
+		if (!isIndexed(word))// O(log n) method
+			return;
+		int term = bigramIndex.termId(word);// O(1)
+		boolean adjacent = previousTerm >= 0 && (previousLine == lineCounter && previousOffset == offset - 1
+				|| previousLine == lineCounter - 1 && offset == 0
+						&& previousOffset == lineTable.wordsOn(previousLine) - 1);
+		if (adjacent)
+			bigramIndex.add(previousTerm, term, page);// O(1) amortised
+		previousTerm = term;
+		previousLine = lineCounter;
+		previousOffset = offset;
+	}
+
+	/**
+	 * Records the end of the line being parsed. Called by processText after all
+	 * words of the line are added.
+	 */
+	protected void endLine() {// O(1) one action
+		lineCounter++;
+	}
+
+	/**
+	 * Derives the pages of every word in a positional index from its positions
+	 * using a page model. The text is not read again. The model is kept for later
+	 * builds.
+	 * 
+	 * @param model the page model to use
+	 * @throws IllegalStateException if the index was not built with positions
+	 */
+	public void repaginate(PageModel model) {// O(n) where n is the amount of positions in the index
+		if (!builtPositional)
+			throw new IllegalStateException("index was not built with positions");
+		this.pageModel = model;
+		for (WordDetail wordDetail : index.values()) {// a loop
+			wordDetail.repaginate(model, lineTable);// O(n) method
+		}
+	}
+
+	/**
+	 * Gets the positions a word occurs at in a positional index, each packed into a
+	 * long in order of line then word offset.
+	 * 
+	 * @param word the word, case insensitive
+	 * @return long[] of packed positions, empty if the word is not in the index
+	 * @throws IllegalStateException if the index was not built with positions
+	 * @see PositionList#line(long)
+	 * @see PositionList#offset(long)
+	 */
+	public long[] positionsOf(String word) {// O(log n) map lookup plus O(m) decode
+		if (!builtPositional)
+			throw new IllegalStateException("index was not built with positions");
+		var wordDetail = index.get(word.toLowerCase());// O(log n)
+		if (wordDetail == null || wordDetail.getPositions() == null)
+			return new long[0];
+		return wordDetail.getPositions().toArray();// O(m) method
+	}
+
+	/**
+	 * Gets the text around each occurrence of a word in a positional index, a
+	 * keyword in context concordance. The text last parsed is memory mapped the
+	 * first time and each occurrence found through the byte offset of its line in
+	 * the line table, so only the line and a few bytes either side are read for
+	 * each. The word is checked against the tokenizer of the build.
+	 * 
+	 * @param word  the word, case insensitive
+	 * @param width the characters of context either side of each occurrence
+	 * @return List of contexts in the order of the text, empty if the word is not
+	 *         in the index
+	 * @throws IllegalStateException    if the index was not built with positions,
+	 *                                  the text is compressed or has changed, or
+	 *                                  a word found is not the word indexed
+	 * @throws IllegalArgumentException if the width is negative
+	 * @throws IndexingException        if the text cannot be read
+	 * @see Concordance
+	 */
+	public List<Concordance.Context> concordance(String word, int width) {// O(m * (l + w)) occurrences by line and width
+		if (width < 0)
+			throw new IllegalArgumentException("width must not be negative: " + width);
+		long[] positions = positionsOf(word);// O(log n + m) method
+		if (concordance == null)
+			concordance = Concordance.of(parsedText, lineTable, tokenizer);// O(r) method
+		return concordance.contextsOf(positions, width, pageModel);// O(m * (l + w)) method
+	}
+
+	/**
+	 * Re-indexes a revised text file, the text file set, against the last build.
+	 * Each page of the text is hashed and only the pages whose hash differs from
+	 * the last build are tokenized. The old occurrences of their words are removed
+	 * and the new ones added, so the cost follows the size of the edit rather than
+	 * the size of the text. The index is the same as a full build of the revised
+	 * text. An edit that adds or removes lines moves the lines of the pages after
+	 * it, which all change.
+	 * 
+	 * A full build is done instead if the last build was not change tracked, was
+	 * positional, recorded bigrams, or the stop words, dictionary, page model or
+	 * remove null definitions option have changed since.
+	 * 
+	 * @return int number of pages tokenized
+	 * @throws IndexingException if a file cannot be read
+	 * @see #setChangeTracking(boolean)
+	 * @see PageHashes
+	 */
+	public int reindex() {// O(n + c) where n is the amount of lines and c the amount of words on changed pages
+		if (pageHashes == null || builtPositional || bigramIndex != null || !stamp().equals(builtStamp)) {
+			createIndex();// O(n) method
+			return getPageCount();
+		}
+		int changed;
+		try {
+			changed = PageHashes.reindex(this, loadDictionary(dictionaryFile));// O(n + c) method, dictionary cached
+		} catch (IOException | UncheckedIOException e) {
+			throw new IndexingException("Cannot re-index " + textFile, e);
+		}
+		if (publisher.isPublished())
+			publisher = new IndexPublisher();// the last build stays with its subscribers
+		publishIndex();// O(n) method
+		return changed;
+	}
+
+	/*
+	 * Returns the stamp of the sources and options a build depends on other than
+	 * the text.
+	 */
+	private BuildStamp stamp() {// O(1) reads two file attributes
+		return new BuildStamp(stampOf(stopWordsFile), stampOf(dictionaryFile), removeNullDefinition, pageModel);
+	}
+
+	/*
+	 * Returns the path, modification time and size of a file as a String, or the
+	 * path alone if it cannot be read. Package-private, also used by Checkpoint.
+	 * 
+	 * @param file: the file location
+	 */
+	static String stampOf(String file) {// O(1) reads the file attributes
+		if (file == null)
+			return null;
+		try {
+			Path path = Path.of(file).toAbsolutePath();
+			var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return path + "|" + attributes.lastModifiedTime() + "|" + attributes.size();
+		} catch (Exception e) {
+			return file;
+		}
+	}
+
+	/**
+	 * Gets the latest snapshot of the build, a consistent view of the pages of the
+	 * indexed words in the lines parsed so far. It may be taken and queried from
+	 * any thread while the build runs, and is complete once the text is parsed.
+	 * 
+	 * @return IndexSnapshot latest, empty if snapshots are not set
+	 * @see #setSnapshots(int)
+	 */
+	public IndexSnapshot snapshot() {// O(1) one action
+		return snapshot.get();
+	}
+
+	/**
+	 * Publishes a copy of the finished index to the subscribers of the publisher,
+	 * with the unique word count first if it is displayed. Called by each builder
+	 * at the end of createIndex once words with no definition are removed, so
+	 * subscribers consume the entries while outputIndex writes them, and again by
+	 * reindex. The details of the words are shared, a re-index replaces those it
+	 * changes rather than changing them.
+	 * 
+	 * @see #publisher()
+	 */
+	protected void publishIndex() {// O(n) copy of the references, O(s) starts a thread per subscriber
+		publisher.publish(Collections.unmodifiableSortedMap(new TreeMap<>(index)), displayUniqueWordCount);
+	}
+
+	/**
+	 * Ends the stream of every subscriber waiting for the index of a build that
+	 * has failed with its error. Called by each builder when createIndex throws.
+	 * 
+	 * @param <E>   the type of the error
+	 * @param error the error thrown
+	 * @return the error, to be thrown
+	 */
+	protected <E extends RuntimeException> E publishFailure(E error) {// O(s) starts a thread per subscriber
+		publisher.fail(error);// O(s) method
+		return error;
+	}
+
+	/**
+	 * Gets the publisher of the entries of the build: the last build or re-index
+	 * once it has cleaned up its index, otherwise the next build. Each subscriber
+	 * is sent the entries in natural order, only as many as it requests, and a
+	 * subscriber of a build not yet finished is sent them once the index is
+	 * cleaned up, or an error if the build fails. A DualIndexBuilder publishes
+	 * its index only, not its stop words index.
+	 * 
+	 * @return Flow.Publisher of the items of the index
+	 * @see IndexItem
+	 */
+	public Flow.Publisher<IndexItem> publisher() {// O(1) one action
+		return publisher;
+	}
+
+	/**
+	 * Freezes the index as it is now, to print or write it in any ordering.
+	 * 
+	 * @return FrozenIndex of the words of the index
+	 * @see IndexOrdering
+	 */
+	public FrozenIndex freeze() {// O(n) copy of the references
+		return new FrozenIndex(index);
+	}
+
+	/**
+	 * Prints all words in index to console. Five words per line in an ordering.
+	 * 
+	 * @param ordering the order to print the words in
+	 */
+	public void printAllWords(IndexOrdering ordering) {// O(n log n / p) due to the sort
+		int counter = 0;
+		for (Entry<String, WordDetail> entry : freeze().entries(ordering)) {// a loop
+			System.out.print(entry.getKey() + ", ");
+			counter++;
+			if (counter % 5 == 0) {
+				System.out.println();
+			}
+		}
+	}
+
+	/**
+	 * Writes an index to a file in the ordering set, used by the outputIndex
+	 * method of each builder. An index in natural order is written as it is,
+	 * otherwise it is frozen and written in the order of its term ids.
+	 * 
+	 * @param map    the index to write
+	 * @param header text written before the index, null for none
+	 * @param file   String for file location
+	 * @throws IOException if the file cannot be written
+	 * @see #setOrdering(IndexOrdering)
+	 */
+	protected void writeIndex(SortedMap<String, WordDetail> map, String header, String file)
+			throws IOException {// O(n) due to IndexWriter, O(n log n / p) to order
+		if (ordering == IndexOrdering.ALPHABETICAL)
+			IndexWriter.write(map, header, file, parallelOutput);// O(n) method
+		else
+			IndexWriter.write(new FrozenIndex(map).entries(ordering), header, file, parallelOutput);// O(n) method
+	}
+
+	/**
+	 * Gets the pairs of adjacent words recorded by the last build.
+	 * 
+	 * @return BigramIndex of pairs, null if the last build did not record bigrams
+	 * @see #setBigrams(boolean)
+	 */
+	public BigramIndex getBigrams() {// O(1) one action
+		return bigramIndex;
+	}
+
+	/**
+	 * Gets the number of pages of the text last parsed under the current page
+	 * model.
+	 * 
+	 * @return int number of pages, 0 if no text has been parsed
+	 */
+	public int getPageCount() {// O(1) one action
+		return lineTable.size() == 0 ? 0 : pageModel.pageOf(lineTable.size() - 1, lineTable);
+	}
+
+	/**
+	 * {@inheritDoc} Nothing is printed if the progress bar has been switched off.
+	 * The listener of an asynchronous build is told either way.
+	 * 
+	 * @see #setShowProgress(boolean)
+	 * @see #buildIndexAsync(Duration, ProgressListener)
+	 */
+	@Override
+	public void printProgress(int progress, int total) {// O(n) from default method
+		if (showProgress) {
+			ProgressBar.super.printProgress(progress, total);
+		}
+		var listener = this.listener;
+		if (listener != null)
+			listener.progress(progress, total);
+	}
+
+	/**
+	 * Builds and outputs the index asynchronously on a distinct virtual thread.
+	 * 
+	 * @return IndexBuild handle of the build
+	 * @throws IllegalStateException if an asynchronous build of this builder is
+	 *                               still running
+	 * @see #buildIndexAsync(Duration, ProgressListener)
+	 */
+	public IndexBuild buildIndexAsync() {// O(1) starts a thread
+		return buildIndexAsync(null, null);
+	}
+
+	/**
+	 * Builds and outputs the index asynchronously on a distinct virtual thread.
+	 * The handle completes with this builder once the index is output, or with the
+	 * IndexingException that stopped the build. Cancelling the handle or passing
+	 * the deadline stops the build promptly. Distinct builders can build at the
+	 * same time, sharing the cached stop words and dictionary.
+	 * 
+	 * @param deadline how long the build may run for, null for no limit
+	 * @param listener told of the progress of the build, may be null
+	 * @return IndexBuild handle of the build
+	 * @throws IllegalStateException if an asynchronous build of this builder is
+	 *                               still running
+	 * @see IndexBuild
+	 */
+	public IndexBuild buildIndexAsync(Duration deadline, ProgressListener listener) {// O(1) starts a thread
+		var build = new IndexBuild(this, this::buildIndex);
+		if (!running.compareAndSet(null, build))
+			throw new IllegalStateException("a build of this builder is already running");
+		this.stopRequested = false;
+		this.listener = listener;
+		build.start(deadline);
+		return build;
+	}
+
+	/*
+	 * Asks the asynchronous build to stop before its next line of text.
+	 * Package-private, called by IndexBuild.
+	 */
+	void requestStop() {// O(1) one action
+		stopRequested = true;
+	}
+
+	/*
+	 * Clears the state of an asynchronous build once its thread ends so the
+	 * builder can be built again.
+	 * 
+	 * @param build: the build that ended
+	 */
+	void finishAsync(IndexBuild build) {// O(1) three actions
+		stopRequested = false;
+		listener = null;
+		running.compareAndSet(build, null);
+	}
+
+	/**
+	 * Returns the stop words of a file as a read only set of lower case words. The
+	 * file is only parsed if it has not been parsed before or has changed since,
+	 * otherwise the set already in memory is returned.
+	 * 
+	 * @param file String for file location
+	 * @return Set of stop words
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Set<String> loadStopWords(String file) throws IOException {// O(1) if cached, O(n) if parsed
+		return loadStopWords(file, ExecutionSettings.defaults());
+	}
+
+	/**
+	 * Returns the stop words of a file, parsed by the execution settings if not
+	 * cached.
+	 * 
+	 * @param file     String for file location
+	 * @param settings how the file is parsed
+	 * @return Set of stop words
+	 * @throws IOException if the file cannot be read
+	 * @see #loadStopWords(String)
+	 */
+	@SuppressWarnings("unchecked")
+	public static Set<String> loadStopWords(String file, ExecutionSettings settings) throws IOException {// O(1) cached
+		return (Set<String>) load("stop words", file, settings);
+	}
+
+	/**
+	 * Returns the dictionary of a file as a read only map of lower case word to its
+	 * dictionary line, the line being the definition given to the index. The file
+	 * is only parsed if it has not been parsed before or has changed since,
+	 * otherwise the map already in memory is returned.
+	 * 
+	 * @param file String for file location
+	 * @return Map of word to definition
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Map<String, String> loadDictionary(String file) throws IOException {// O(1) if cached, O(n) if parsed
+		return loadDictionary(file, ExecutionSettings.defaults());
+	}
+
+	/**
+	 * Returns the dictionary of a file, parsed by the execution settings if not
+	 * cached.
+	 * 
+	 * @param file     String for file location
+	 * @param settings how the file is parsed
+	 * @return Map of word to definition
+	 * @throws IOException if the file cannot be read
+	 * @see #loadDictionary(String)
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, String> loadDictionary(String file, ExecutionSettings settings) throws IOException {// O(1)
+		return (Map<String, String>) load("dictionary", file, settings);
+	}
+
+	/**
+	 * Empties the cache of parsed stop words and dictionaries.
+	 */
+	public static void clearSourceCache() {// O(n) clears map
+		sourceCache.clear();
+	}
+
+	/*
+	 * Returns a cached source if the file is unchanged since it was parsed,
+	 * otherwise parses it and caches the result. Two threads loading the same
+	 * changed file at once may both parse it, the last one is kept.
+	 * 
+	 * @param kind: "stop words" or "dictionary"
+	 * 
+	 * @param file: the file location
+	 * 
+	 * @param settings: how the file is parsed
+	 */
+	private static Object load(String kind, String file, ExecutionSettings settings) throws IOException {// O(1) cached
+		Path path = Path.of(file).toAbsolutePath();
+		var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		String key = kind + ":" + path;
+		var cached = sourceCache.get(key);// O(1)
+		if (cached != null && cached.modified().equals(attributes.lastModifiedTime())
+				&& cached.size() == attributes.size()) {
+			return cached.parsed();
+		}
+		Object parsed = kind.equals("dictionary") ? parseDictionary(path, settings) : parseStopWords(path, settings);
+		sourceCache.put(key, new CachedSource(attributes.lastModifiedTime(), attributes.size(), parsed));// O(1)
+		return parsed;
+	}
+
+	/*
+	 * Parses a stop words file into a read only set, batches of lines are split
+	 * into words by the execution settings. Stops if the thread is interrupted.
+	 * 
+	 * @param path: the file to parse
+	 * 
+	 * @param settings: how the batches run
+	 */
+	private static Set<String> parseStopWords(Path path, ExecutionSettings settings) throws IOException {// O(n)
+		Set<String> stopWords = new ConcurrentSkipListSet<>();// thread safe set
+		try (var lines = Compression.lines(path.toString())) {
+			inBatches(lines, settings, batch -> {
+				List<String> words = new ArrayList<>();
+				for (String line : batch) {// a loop
+					for (String word : SPACES.split(line)) {// a loop
+						words.add(word.toLowerCase());
+					}
+				}
+				return words;
+			}, (batch, words) -> stopWords.addAll(words));// O(w log n)
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("interrupted while parsing " + path);
+		} catch (ExecutionException e) {
+			throw new IOException("Cannot parse " + path, e.getCause());
+		}
+		return Collections.unmodifiableSet(stopWords);
+	}
+
+	/*
+	 * Parses a dictionary file into a read only map, batches of lines are split
+	 * by the execution settings. The definitions are added in the order of the
+	 * file, so a word defined on more than one line always has its last line
+	 * whatever the settings. Stops if the thread is interrupted.
+	 * 
+	 * @param path: the file to parse
+	 * 
+	 * @param settings: how the batches run
+	 */
+	private static Map<String, String> parseDictionary(Path path, ExecutionSettings settings) throws IOException {// O(n)
+		Map<String, String> dictionary = new HashMap<>();// filled on one thread only
+		try (var lines = Compression.lines(path.toString())) {
+			inBatches(lines, settings, batch -> {
+				String[] words = new String[batch.size()];
+				for (int i = 0; i < words.length; i++) {// a loop
+					String str[] = batch.get(i).toLowerCase().trim().split(",");
+					words[i] = str.length > 0 ? str[0] : null;
+				}
+				return words;
+			}, (batch, words) -> {
+				for (int i = 0; i < words.length; i++) {// a loop
+					if (words[i] != null)
+						dictionary.put(words[i], batch.get(i));// O(1)
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("interrupted while parsing " + path);
+		} catch (ExecutionException e) {
+			throw new IOException("Cannot parse " + path, e.getCause());
+		}
+		return Collections.unmodifiableMap(dictionary);
+	}
+
+	/**
+	 * Gives each word in the index its definition from a parsed dictionary. Words
+	 * not in the dictionary are left with a null definition.
+	 * 
+	 * @param dictionary Map of word to definition
+	 * @see #loadDictionary(String)
+	 */
+	protected void addDefinitions(Map<String, String> dictionary) {// O(n) due to loop
+		for (var e : index.entrySet()) {// a loop
+			var definition = dictionary.get(e.getKey());// O(1)
+			if (definition != null)
+				e.getValue().setDefinition(definition);
+		}
+	}
+
+	/**
+	 * Sets if the index records the line and word offset of every occurrence. The
+	 * pages of a positional index are derived from positions once the text is
+	 * parsed, and can be derived again under another page model.
+	 * 
+	 * @param positional boolean true or false
+	 * @see #repaginate(PageModel)
+	 */
+	public void setPositional(boolean positional) {// O(1) one action - set
+		this.positional = positional;
+	}
+
+	/**
+	 * Sets if a hash of each page is kept so a revised text can be re-indexed by
+	 * tokenizing only the pages that changed. Not kept for a positional index.
+	 * 
+	 * @param changeTracking boolean true or false
+	 * @see #reindex()
+	 */
+	public void setChangeTracking(boolean changeTracking) {// O(1) one action - set
+		this.changeTracking = changeTracking;
+	}
+
+	/**
+	 * Sets if pairs of adjacent indexed words are recorded with the pages they
+	 * occur on. Pages of pairs follow the page model of the build, they are not
+	 * derived again by repaginate.
+	 * 
+	 * @param bigrams boolean true or false
+	 * @see #getBigrams()
+	 */
+	public void setBigrams(boolean bigrams) {// O(1) one action - set
+		this.bigrams = bigrams;
+	}
+
+	/**
+	 * Sets how parsing and tokenizing run: on virtual threads, a ForkJoinPool of
+	 * platform threads or sequentially. The index is the same whichever is used.
+	 * 
+	 * @param strategy the execution strategy
+	 * @see ExecutionStrategy
+	 */
+	public void setExecutionStrategy(ExecutionStrategy strategy) {// O(1) one action - set
+		this.execution = execution.withStrategy(strategy);
+	}
+
+	/**
+	 * Sets the number of batches worked on at once, the number of threads of a
+	 * ForkJoinPool.
+	 * 
+	 * @param parallelism int at least 1
+	 * @throws IllegalArgumentException if less than 1
+	 */
+	public void setParallelism(int parallelism) {// O(1) one action - set
+		this.execution = execution.withParallelism(parallelism);
+	}
+
+	/**
+	 * Sets the number of lines in each batch handed to a thread.
+	 * 
+	 * @param batchSize int at least 1
+	 * @throws IllegalArgumentException if less than 1
+	 */
+	public void setBatchSize(int batchSize) {// O(1) one action - set
+		this.execution = execution.withBatchSize(batchSize);
+	}
+
+	/**
+	 * Sets the strategy, parallelism and batch size together.
+	 * 
+	 * @param execution the execution settings
+	 * @see AutoTuner
+	 */
+	public void setExecution(ExecutionSettings execution) {// O(1) one action - set
+		this.execution = Objects.requireNonNull(execution);
+	}
+
+	/**
+	 * Sets how lines are split into words: 8 bytes at a time, one character at a
+	 * time or by the original regular expressions. The words are the same whichever
+	 * is used.
+	 * 
+	 * @param tokenizer the tokenizer backend
+	 * @see Tokenizer
+	 */
+	public void setTokenizer(Tokenizer tokenizer) {// O(1) one action - set
+		this.tokenizer = Objects.requireNonNull(tokenizer);
+	}
+
+	/**
+	 * Sets a file to save checkpoints of the build to while parsing the text, so a
+	 * build that is killed or cancelled can be resumed. A later build of the same
+	 * text with the same sources and options resumes from the last checkpoint and
+	 * builds the same index as a build that was never stopped. Builds with bigrams
+	 * or change tracking are not checkpointed.
+	 * 
+	 * @param checkpointFile String for file location, null for no checkpoints
+	 * @param interval       the lines of text parsed between checkpoints
+	 * @throws IllegalArgumentException if the interval is less than 1
+	 * @see Checkpoint
+	 */
+	public void setCheckpoint(String checkpointFile, int interval) {// O(1) two actions - set
+		if (checkpointFile != null && interval < 1)
+			throw new IllegalArgumentException("interval must be at least 1: " + interval);
+		this.checkpointFile = checkpointFile;
+		this.checkpointInterval = interval;
+	}
+
+	/**
+	 * Sets how often a snapshot of the build is published while the text is
+	 * parsed, for queries of early results. Sealing runs on its own virtual thread
+	 * so parsing does not wait for it. With null definitions removed, words with no
+	 * definition are in the snapshots taken while parsing but not in the complete
+	 * snapshot.
+	 * 
+	 * @param interval the lines of text parsed between snapshots, 0 for none
+	 * @throws IllegalArgumentException if the interval is negative
+	 * @see #snapshot()
+	 * @see IndexSnapshot
+	 */
+	public void setSnapshots(int interval) {// O(1) one action - set
+		if (interval < 0)
+			throw new IllegalArgumentException("interval must not be negative: " + interval);
+		this.snapshotInterval = interval;
+	}
+
+	/**
+	 * Sets the order the index is written in by outputIndex: natural order, or by
+	 * frequency, first page or distinct pages with ties in natural order.
+	 * 
+	 * @param ordering the ordering
+	 * @see IndexOrdering
+	 */
+	public void setOrdering(IndexOrdering ordering) {// O(1) one action - set
+		this.ordering = Objects.requireNonNull(ordering);
+	}
+
+	/**
+	 * Gets the execution settings.
+	 * 
+	 * @return ExecutionSettings in use
+	 */
+	public ExecutionSettings getExecution() {// O(1) one action
+		return execution;
+	}
+
+	/**
+	 * Times a build of a sample of the text under a range of execution settings
+	 * and keeps the fastest. Intended to be run before building, the index of the
+	 * last trial is left in place of any index already built.
+	 * 
+	 * @return ExecutionSettings chosen
+	 * @throws IndexingException if a file cannot be read
+	 * @see AutoTuner
+	 */
+	public ExecutionSettings autoTune() {// O(c * s) candidates by sample lines
+		return new AutoTuner().tune(this);
+	}
+
+	/**
+	 * Sets the page model deciding which page each line is on.
+	 * 
+	 * @param pageModel the page model
+	 * @see PageModel
+	 */
+	public void setPageModel(PageModel pageModel) {// O(1) one action - set
+		this.pageModel = pageModel;
+	}
+
+	/**
+	 * Sets if the index is output in parallel, ranges of words being formatted by
+	 * distinct virtual threads and written with positional writes. The output is
+	 * the same as when written sequentially.
+	 * 
+	 * @param parallelOutput boolean true or false
+	 * @see IndexWriter
+	 */
+	public void setParallelOutput(boolean parallelOutput) {// O(1) one action - set
+		this.parallelOutput = parallelOutput;
+	}
+
+	/**
+	 * Sets if the progress bar is printed to console while building.
+	 * 
+	 * @param showProgress boolean true or false
+	 */
+	public void setShowProgress(boolean showProgress) {// O(1) one action - set
+		this.showProgress = showProgress;
+	}
+
 	/**
 	 * Sets if the index displays the unique word count at start of index.
 	 * 
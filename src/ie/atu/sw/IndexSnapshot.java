@@ -0,0 +1,214 @@
+package ie.atu.sw;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * The class IndexSnapshot is a consistent, read only view of an index part way
+ * through a build: the pages of every indexed word in the first lines of the
+ * text, as of one epoch. A snapshot never changes once taken, so it can be
+ * queried from any thread while the build carries on.
+ *
+ * A snapshot is a list of sealed segments in the order of the text, each
+ * holding the pages its words occur on in a range of lines as sorted arrays.
+ * New snapshots share the segments of older ones, only adding or merging
+ * segments, so taking a snapshot costs no more than reading a reference.
+ *
+ * Words without a definition are only known once the dictionary is read, so
+ * with null definitions removed they are in the snapshots taken while parsing,
+ * and left out of the complete snapshot as they are left out of the index.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#setSnapshots(int)
+ * @see SnapshotSealer
+ */
+public class IndexSnapshot {
+	/** the snapshot of a build that has not parsed any lines */
+	public static final IndexSnapshot EMPTY = new IndexSnapshot(0, 0, false, List.of());
+
+	private final long epoch;// number of snapshots published before this one
+	private final int lines;// lines of text the snapshot covers
+	private final boolean complete;// true once the whole text is covered
+	private final List<Segment> segments;// sealed segments, oldest first
+
+	/*
+	 * The pages of the words of a range of lines, the words sorted and the pages of
+	 * each in order, and the number of lines in the range. Never changed once
+	 * made.
+	 */
+	record Segment(String[] words, int[][] pages, int lines) {
+
+		/*
+		 * Returns the pages of a word in the segment, null if it is not there.
+		 *
+		 * @param word: the word
+		 */
+		int[] pagesOf(String word) {// O(log w) binary search
+			int i = Arrays.binarySearch(words, word);
+			return i < 0 ? null : pages[i];
+		}
+
+		/*
+		 * Merges an older segment with a newer one, the pages of a word in both
+		 * joined in the order of the text.
+		 *
+		 * @param older: the segment of the earlier lines
+		 *
+		 * @param newer: the segment of the later lines
+		 */
+		static Segment merge(Segment older, Segment newer) {// O(a + b) due to loop
+			String[] words = new String[older.words.length + newer.words.length];
+			int[][] pages = new int[words.length][];
+			int a = 0;
+			int b = 0;
+			int n = 0;
+			while (a < older.words.length || b < newer.words.length) {// a loop
+				int cmp = a == older.words.length ? 1
+						: b == newer.words.length ? -1 : older.words[a].compareTo(newer.words[b]);
+				if (cmp < 0) {
+					words[n] = older.words[a];
+					pages[n++] = older.pages[a++];
+				} else if (cmp > 0) {
+					words[n] = newer.words[b];
+					pages[n++] = newer.pages[b++];
+				} else {
+					int[] joined = Arrays.copyOf(older.pages[a], older.pages[a].length + newer.pages[b].length);
+					System.arraycopy(newer.pages[b], 0, joined, older.pages[a].length, newer.pages[b].length);
+					words[n] = older.words[a++];
+					pages[n++] = joined;
+					b++;
+				}
+			}
+			return new Segment(Arrays.copyOf(words, n), Arrays.copyOf(pages, n), older.lines + newer.lines);
+		}
+
+		/*
+		 * Returns the segment with only the words that are kept.
+		 *
+		 * @param kept: true for the words to keep
+		 */
+		Segment retain(Predicate<String> kept) {// O(w) due to loop
+			String[] keptWords = new String[words.length];
+			int[][] keptPages = new int[words.length][];
+			int n = 0;
+			for (int i = 0; i < words.length; i++) {// a loop
+				if (kept.test(words[i])) {
+					keptWords[n] = words[i];
+					keptPages[n++] = pages[i];
+				}
+			}
+			return new Segment(Arrays.copyOf(keptWords, n), Arrays.copyOf(keptPages, n), lines);
+		}
+	}
+
+	/*
+	 * Creates a snapshot. Package-private, snapshots are published by the
+	 * SnapshotSealer.
+	 *
+	 * @param epoch: the number of snapshots before it
+	 *
+	 * @param lines: the lines of text covered
+	 *
+	 * @param complete: true if the whole text is covered
+	 *
+	 * @param segments: the sealed segments, not changed afterwards
+	 */
+	IndexSnapshot(long epoch, int lines, boolean complete, List<Segment> segments) {// O(s) copy of the list
+		this.epoch = epoch;
+		this.lines = lines;
+		this.complete = complete;
+		this.segments = List.copyOf(segments);
+	}
+
+	/**
+	 * Gets the epoch of the snapshot, a later snapshot of the same build has a
+	 * higher epoch.
+	 *
+	 * @return long epoch
+	 */
+	public long epoch() {// O(1) one action
+		return epoch;
+	}
+
+	/**
+	 * Gets the number of lines of text the snapshot covers.
+	 *
+	 * @return int number of lines
+	 */
+	public int lines() {// O(1) one action
+		return lines;
+	}
+
+	/**
+	 * Returns true once the snapshot covers the whole text.
+	 *
+	 * @return boolean true if complete
+	 */
+	public boolean isComplete() {// O(1) one action
+		return complete;
+	}
+
+	/**
+	 * Gets the pages a word occurs on in the lines covered, once for each
+	 * occurrence, in order.
+	 *
+	 * @param word the word, in lower case
+	 * @return int[] of pages, empty if the word has not occurred
+	 */
+	public int[] pagesOf(String word) {// O(s log w) where s is the amount of segments
+		int[][] parts = new int[segments.size()][];
+		int length = 0;
+		for (int i = 0; i < parts.length; i++) {// a loop
+			parts[i] = segments.get(i).pagesOf(word);
+			length += parts[i] == null ? 0 : parts[i].length;
+		}
+		int[] pages = new int[length];
+		int n = 0;
+		for (int[] part : parts) {// a loop
+			if (part != null) {
+				System.arraycopy(part, 0, pages, n, part.length);
+				n += part.length;
+			}
+		}
+		return pages;
+	}
+
+	/**
+	 * Returns true if a word has occurred in the lines covered.
+	 *
+	 * @param word the word, in lower case
+	 * @return boolean true if it has occurred
+	 */
+	public boolean contains(String word) {// O(s log w) due to loop
+		for (Segment segment : segments) {// a loop
+			if (segment.pagesOf(word) != null)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets every word that has occurred in the lines covered.
+	 *
+	 * @return SortedSet of words in natural order
+	 */
+	public SortedSet<String> words() {// O(n log n) where n is the amount of words in the segments
+		SortedSet<String> words = new TreeSet<>();
+		for (Segment segment : segments) {// a loop
+			words.addAll(Arrays.asList(segment.words()));
+		}
+		return Collections.unmodifiableSortedSet(words);
+	}
+
+	/**
+	 * Gets the number of sealed segments the snapshot is made of.
+	 *
+	 * @return int number of segments
+	 */
+	public int segmentCount() {// O(1) one action
+		return segments.size();
+	}
+}
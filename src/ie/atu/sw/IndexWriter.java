@@ -0,0 +1,170 @@
+package ie.atu.sw;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.*;
+
+/**
+ * The class IndexWriter writes an index to a file as indented text, each word
+ * followed by its definition and pages. Used by the outputIndex method of each
+ * builder.
+ *
+ * The index can be written sequentially, one entry at a time, or in parallel:
+ * the sorted words are split into ranges, each range is formatted into its own
+ * buffer by a distinct virtual thread, and each buffer is written as soon as
+ * the buffers before it are. Only a window of one range per core is formatted
+ * ahead, so the memory held is a few ranges whatever the size of the index.
+ * Both produce exactly the same bytes.
+ *
+ * A file named for compression is compressed as it is written. In parallel a
+ * gzip file is made of one gzip member per range, each compressed on its own
+ * virtual thread, which decompresses to the same text. Other compressed
+ * formats are formatted in parallel and compressed in order.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#setParallelOutput(boolean)
+ * @see Compression
+ */
+public class IndexWriter {
+	private static final int ENTRIES_PER_RANGE = 4096;// words formatted by each virtual thread
+
+	/*
+	 * Private constructor, the class has static methods only.
+	 */
+	private IndexWriter() {
+		super();
+	}
+
+	/**
+	 * Writes an index to a file.
+	 *
+	 * @param index    the index in the order to write
+	 * @param header   text written before the index, null for none
+	 * @param file     String for file location
+	 * @param parallel true to format and write ranges of the index in parallel
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(SortedMap<String, WordDetail> index, String header, String file, boolean parallel)
+			throws IOException {// O(n) where n is the amount of words
+		if (parallel) {
+			writeParallel(new ArrayList<>(index.entrySet()), header, file);// O(n) method, snapshot of the entries
+		} else {
+			write(index.entrySet().iterator(), header, file);// O(n) method
+		}
+	}
+
+	/**
+	 * Writes the entries of an index to a file in the order of the list, such as
+	 * an ordering of a FrozenIndex.
+	 *
+	 * @param entries  the entries in the order to write
+	 * @param header   text written before the index, null for none
+	 * @param file     String for file location
+	 * @param parallel true to format and write ranges of the entries in parallel
+	 * @throws IOException if the file cannot be written
+	 * @see FrozenIndex#entries(IndexOrdering)
+	 */
+	public static void write(List<Entry<String, WordDetail>> entries, String header, String file, boolean parallel)
+			throws IOException {// O(n) where n is the amount of words
+		if (parallel) {
+			writeParallel(entries, header, file);// O(n) method
+		} else {
+			write(entries.iterator(), header, file);// O(n) method
+		}
+	}
+
+	/**
+	 * Writes entries to a file one at a time as they are supplied, so an index
+	 * merged from segments is written without being held in memory. The file is
+	 * the same as a sequential write of an index of the same entries.
+	 *
+	 * @param entries the entries in the order to write
+	 * @param header  text written before the entries, null for none
+	 * @param file    String for file location
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Iterator<Entry<String, WordDetail>> entries, String header, String file)
+			throws IOException {// O(n) due to loop
+		var format = Compression.outputFormatOf(file);
+		try (Writer fw = format == Compression.Format.PLAIN ? new FileWriter(new File(file))
+				: new OutputStreamWriter(Compression.output(file), Charset.defaultCharset())) {
+			if (header != null) {
+				fw.write(header);
+			}
+			while (entries.hasNext()) {// a loop
+				if (Thread.currentThread().isInterrupted())
+					throw new InterruptedIOException("interrupted while writing index");
+				var e = entries.next();
+				fw.write(format(e.getKey(), e.getValue()));// O(1) per entry
+			}
+		}
+	}
+
+	/**
+	 * Formats one entry of the index as it appears in the output.
+	 *
+	 * @param word       the word
+	 * @param wordDetail the detail of the word
+	 * @return String of the entry
+	 */
+	public static String format(String word, WordDetail wordDetail) {// O(p) where p is the amount of pages
+		return word + "\n" + "\tDefinitions:\n" + "\t" + wordDetail.getDefinition() + "\n\n" + "\tPages:\n" + "\t"
+				+ wordDetail.getPages() + "\n\n";
+	}
+
+	/*
+	 * Splits the entries into ranges and formats each range into a buffer on a
+	 * virtual thread, no more than a window of ranges ahead of the one being
+	 * written. Each buffer is written as soon as it and every buffer before it are
+	 * formatted, its offset being the sizes before it, so no more than the window
+	 * is held in memory. Text is encoded with the default charset, the same as
+	 * FileWriter, so the file is identical to a sequential write.
+	 */
+	private static void writeParallel(List<Entry<String, WordDetail>> entries, String header, String file)
+			throws IOException {// O(n / p) where p is the amount of cores
+		Charset charset = Charset.defaultCharset();
+		var format = Compression.outputFormatOf(file);
+		boolean members = format == Compression.Format.GZIP;// each range its own gzip member
+		int ranges = (entries.size() + ENTRIES_PER_RANGE - 1) / ENTRIES_PER_RANGE;
+		int window = Math.max(2, Runtime.getRuntime().availableProcessors());// ranges formatted ahead
+
+		try (OutputStream out = format == Compression.Format.PLAIN || members
+				? new BufferedOutputStream(Files.newOutputStream(Path.of(file)), 1 << 16)
+				: Compression.output(file); // other formats compressed in order
+				var es = Executors.newVirtualThreadPerTaskExecutor()) {
+			Deque<Future<byte[]>> formatted = new ArrayDeque<>();
+			int submitted = 0;
+			byte[] head = header == null ? new byte[0] : header.getBytes(charset);
+			out.write(members ? Compression.gzip(head) : head);
+			for (int r = 0; r < ranges; r++) {// a loop, in order
+				while (submitted < ranges && submitted < r + window) {// a loop, keeps the window full
+					int from = submitted * ENTRIES_PER_RANGE;
+					int to = Math.min(entries.size(), from + ENTRIES_PER_RANGE);
+					formatted.add(es.submit(() -> {
+						StringBuilder sb = new StringBuilder();
+						for (int i = from; i < to; i++) {// a loop
+							var e = entries.get(i);
+							sb.append(format(e.getKey(), e.getValue()));
+						}
+						byte[] bytes = sb.toString().getBytes(charset);
+						return members ? Compression.gzip(bytes) : bytes;
+					}));
+					submitted++;
+				}
+				out.write(formatted.poll().get());// O(b) the offset is known once the ranges before are written
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while formatting index", e);
+		} catch (ExecutionException e) {
+			throw new IOException("failed to format index", e.getCause());
+		}
+	}
+}
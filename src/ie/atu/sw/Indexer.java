@@ -15,6 +15,9 @@ public interface Indexer {
 
 	/**
 	 * Builds the index from processed information sources.
+	 * 
+	 * @throws IndexingException if a source cannot be read or the index cannot
+	 *                           be written
 	 */
 	public abstract void buildIndex();
 
@@ -42,6 +45,8 @@ public interface Indexer {
 
 	/**
 	 * Outputs the index.
+	 * 
+	 * @throws IndexingException if the index cannot be written
 	 */
 	public abstract void outputIndex();
 }
@@ -0,0 +1,39 @@
+package ie.atu.sw;
+
+/**
+ * The class IndexingException is thrown when an index cannot be built or
+ * output, such as when a text, dictionary or stop words file cannot be read or
+ * the output file cannot be written. The cause holds the underlying failure.
+ * Unchecked so that it passes through the Indexer interface and the futures of
+ * an asynchronous build.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#buildIndexAsync()
+ * @see IndexBuild
+ */
+public class IndexingException extends RuntimeException {
+	private static final long serialVersionUID = 1L;// version of the serialized form
+
+	/**
+	 * Constructor of the IndexingException class, for a failure with no
+	 * underlying exception, such as a worker process that exits with an error.
+	 *
+	 * @param message what could not be done
+	 */
+	public IndexingException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Constructor of the IndexingException class.
+	 *
+	 * @param message what could not be done
+	 * @param cause   the underlying failure
+	 */
+	public IndexingException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,137 @@
+package ie.atu.sw;
+
+import java.util.Arrays;
+
+/**
+ * The class LineTable records the lines of a text as it is parsed: the byte
+ * offset each line starts at, the number of words on it and a running count of
+ * form feed characters. Held in primitive arrays, 16 bytes per line, so that
+ * pages can be worked out from line numbers at any time without the text.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see PageModel
+ */
+public class LineTable {
+	private long[] offsets = new long[1024];// byte offset of the start of each line
+	private int[] words = new int[1024];// number of words on each line
+	private int[] formFeeds = new int[1024];// form feeds up to and including each line
+	private int size;// number of lines recorded
+	private long length;// bytes recorded so far
+
+	/**
+	 * Constructor of the LineTable class, creates a new empty table.
+	 */
+	public LineTable() {
+		super();
+	}
+
+	/**
+	 * Adds the next line of the text to the table. The length of the line is taken
+	 * as its UTF-8 encoding plus one byte for the line break.
+	 *
+	 * @param line  the line as read, without its line break
+	 * @param words the number of words on the line
+	 */
+	public void add(String line, int words) {// O(n) where n is the length of the line
+		int feeds = 0;
+		int bytes = 1;
+		for (int i = 0; i < line.length(); i++) {// a loop
+			char c = line.charAt(i);
+			if (c == '\f')
+				feeds++;
+			if (c < 0x80)
+				bytes++;
+			else if (c < 0x800)
+				bytes += 2;
+			else if (Character.isHighSurrogate(c))
+				bytes += 2;// the low surrogate adds the other 2
+			else
+				bytes += Character.isLowSurrogate(c) ? 2 : 3;
+		}
+		add(bytes, feeds, words);
+	}
+
+	/**
+	 * Adds the next line of the text to the table when its length in bytes is
+	 * already known.
+	 *
+	 * @param bytes     the length of the line including its line break
+	 * @param formFeeds the number of form feeds on the line
+	 * @param words     the number of words on the line
+	 */
+	public void add(long bytes, int formFeeds, int words) {// O(1) amortised, arrays double when full
+		if (size == offsets.length) {
+			offsets = Arrays.copyOf(offsets, size * 2);
+			this.words = Arrays.copyOf(this.words, size * 2);
+			this.formFeeds = Arrays.copyOf(this.formFeeds, size * 2);
+		}
+		offsets[size] = length;
+		this.words[size] = words;
+		this.formFeeds[size] = (size == 0 ? 0 : this.formFeeds[size - 1]) + formFeeds;
+		length += bytes;
+		size++;
+	}
+
+	/**
+	 * Gets the number of lines recorded.
+	 *
+	 * @return int number of lines
+	 */
+	public int size() {// O(1) one action only
+		return size;
+	}
+
+	/**
+	 * Gets the number of bytes recorded.
+	 *
+	 * @return long number of bytes
+	 */
+	public long length() {// O(1) one action only
+		return length;
+	}
+
+	/**
+	 * Gets the byte offset a line starts at.
+	 *
+	 * @param line the line number, the first line being 0
+	 * @return long byte offset
+	 */
+	public long offsetOf(int line) {// O(1) array access
+		return offsets[line];
+	}
+
+	/**
+	 * Gets the number of words on a line.
+	 *
+	 * @param line the line number, the first line being 0
+	 * @return int number of words
+	 */
+	public int wordsOn(int line) {// O(1) array access
+		return words[line];
+	}
+
+	/**
+	 * Sets the number of words on a line already recorded, for a line added before
+	 * its words were counted.
+	 *
+	 * @param line  the line number, the first line being 0
+	 * @param words the number of words on the line
+	 */
+	public void setWords(int line, int words) {// O(1) array access
+		this.words[line] = words;
+	}
+
+	/**
+	 * Gets the number of form feeds from the start of the text up to and including
+	 * a line.
+	 *
+	 * @param line the line number, the first line being 0
+	 * @return int number of form feeds
+	 */
+	public int formFeedsThrough(int line) {// O(1) array access
+		return formFeeds[line];
+	}
+}
@@ -15,6 +15,7 @@ import java.util.Scanner;
 public class Menu {
 	private IndexBuilder index; // Instance of IndexBuilder used by class
 	private AlternateIndexBuilder altindex; // Instance of AlternateIndexBuilder used by class
+	private DualIndexBuilder dualindex; // Instance of DualIndexBuilder used by class
 	private boolean keepRunning = true; // Boolean value that keeps application running
 	private Scanner scanner; // Instance of Scanner used by class
 
@@ -26,6 +27,7 @@ public class Menu {
 		// One instance of each index so can be passed to method execute in LSP fashion
 		index = new IndexBuilder();
 		altindex = new AlternateIndexBuilder();
+		dualindex = new DualIndexBuilder();
 	}
 
 	/**
@@ -86,6 +88,7 @@ public class Menu {
 		String choice = scanner.next();
 		index.setTextFile(choice);
 		altindex.setTextFile(choice);
+		dualindex.setTextFile(choice);
 		System.out.println("Text File Set.\n");
 	}
 
@@ -100,6 +103,7 @@ public class Menu {
 		String choice = scanner.next();
 		index.setDictionaryFile(choice);
 		altindex.setDictionaryFile(choice);
+		dualindex.setDictionaryFile(choice);
 		System.out.println("Dictionary File Set.\n");
 	}
 
@@ -114,6 +118,7 @@ public class Menu {
 		String choice = scanner.next();
 		index.setStopWordsFile(choice);
 		altindex.setStopWordsFile(choice);
+		dualindex.setStopWordsFile(choice);
 		System.out.println("Stop Words File Set.\n");
 	}
 
@@ -128,6 +133,7 @@ public class Menu {
 		String choice = scanner.next();
 		index.setOutputFile(choice);
 		altindex.setOutputFile(choice);
+		dualindex.setOutputFile(choice);
 		System.out.println("Output File Set.\n");
 	}
 
@@ -141,6 +147,7 @@ public class Menu {
 		System.out.println("What index do you wish to execute?");
 		System.out.println("(1) Index that excludes Stop Words.");
 		System.out.println("(2) Alternate Index of Stop Words only.");
+		System.out.println("(3) Both Indexes in one pass.");
 		int choice = Integer.parseInt(scanner.next()); // parse an integer from the next input
 		switch (choice) {
 		case 1:
@@ -149,6 +156,11 @@ public class Menu {
 		case 2:
 			execute(altindex);// O(n) method
 			break;
+		case 3:
+			System.out.println("Please input path to the Stop Words Index output location >");
+			dualindex.setStopWordsOutputFile(scanner.next());
+			execute(dualindex);// O(n) method
+			break;
 		default:
 			invalidInput();
 			break;
@@ -169,10 +181,12 @@ public class Menu {
 		case 1:
 			index.setDisplayUniqueWordCount(true);
 			altindex.setDisplayUniqueWordCount(true);
+			dualindex.setDisplayUniqueWordCount(true);
 			break;
 		case 2:
 			index.setDisplayUniqueWordCount(false);
 			altindex.setDisplayUniqueWordCount(false);
+			dualindex.setDisplayUniqueWordCount(false);
 			break;
 		default:
 			invalidInput();
@@ -195,10 +209,12 @@ public class Menu {
 		case 1:
 			index.setRemoveNullDefinition(true);
 			altindex.setRemoveNullDefinition(true);
+			dualindex.setRemoveNullDefinition(true);
 			break;
 		case 2:
 			index.setRemoveNullDefinition(false);
 			altindex.setRemoveNullDefinition(false);
+			dualindex.setRemoveNullDefinition(false);
 			break;
 		default:
 			invalidInput();
@@ -219,7 +235,13 @@ public class Menu {
 	private void execute(Indexer index) throws Exception {// O(n) due to buildIndex()
 		displayUniqueWords();// O(1) method
 		removeNullDefinition();// O(1) method
-		index.buildIndex();// O(n) method
+		try {
+			index.buildIndex();// O(n) method
+		} catch (IndexingException e) {
+			System.out.println();
+			System.out.println("[ERROR] " + e.getMessage() + ": " + e.getCause());
+			System.out.println();
+		}
 	}
 
 	/*
@@ -245,17 +267,29 @@ public class Menu {
 			invalidInput();
 			break;
 		}
-		boolean order = true;// variable to store selection to be used later in method
+		IndexOrdering order = IndexOrdering.ALPHABETICAL;// variable to store selection to be used later in method
 		System.out.println("What order do you want words to print in?");
 		System.out.println("(1) Natural Order (a-z)");
 		System.out.println("(2) Reverse Order (z-a)");
+		System.out.println("(3) Frequency (most occurrences first)");
+		System.out.println("(4) First Page (earliest first)");
+		System.out.println("(5) Distinct Pages (most pages first)");
 		int choice2 = Integer.parseInt(scanner.next());
 		switch (choice2) {
 		case 1:
-			order = true;
+			order = IndexOrdering.ALPHABETICAL;
 			break;
 		case 2:
-			order = false;
+			order = IndexOrdering.REVERSE_ALPHABETICAL;
+			break;
+		case 3:
+			order = IndexOrdering.FREQUENCY;
+			break;
+		case 4:
+			order = IndexOrdering.FIRST_PAGE;
+			break;
+		case 5:
+			order = IndexOrdering.DISTINCT_PAGES;
 			break;
 		default:
 			invalidInput();
@@ -267,11 +301,11 @@ public class Menu {
 		int choice3 = Integer.parseInt(scanner.next());
 		switch (choice3) {
 		case 1:
-			index.printAllWords(order);// O(n) method
+			index.printAllWords(order);// O(n log n / p) method
 			System.out.println();
 			break;
 		case 2:
-			altindex.printAllWords(order);// O(n) method
+			altindex.printAllWords(order);// O(n log n / p) method
 			System.out.println();
 			break;
 		default:
@@ -0,0 +1,303 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * The class PageHashes records a SHA-256 hash of the content of each page of a
+ * text as it is parsed, along with the first line of the page and the distinct
+ * indexed words that occur on it. When the text is revised a page whose hash is
+ * unchanged holds exactly the same words as before, so only the pages whose
+ * hashes differ need to be tokenized again and their words patched. The
+ * re-index of a builder is done here, page by page against its last build.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#reindex()
+ */
+public class PageHashes {
+	private final SortedMap<Integer, Page> pages = new TreeMap<>();// closed pages by page number
+	private MessageDigest digest;// digest of the open page
+	private Set<String> terms;// words of the open page
+	private int open;// number of the open page, 0 if none
+	private int firstLine;// first line of the open page
+	private int lines;// lines of the open page so far
+
+	/**
+	 * The record of one page.
+	 *
+	 * @param number    the page number
+	 * @param firstLine the line number the page starts at
+	 * @param lines     the number of lines on the page
+	 * @param hash      the SHA-256 hash of the lines of the page
+	 * @param terms     the distinct indexed words of the page
+	 */
+	public record Page(int number, int firstLine, int lines, byte[] hash, String[] terms) {
+	}
+
+	/**
+	 * Constructor of the PageHashes class, creates a new empty record of pages.
+	 */
+	public PageHashes() {
+		super();
+	}
+
+	/**
+	 * Adds the next line of the text. A line on a different page to the one before
+	 * closes that page.
+	 *
+	 * @param page the page number of the line
+	 * @param line the line number, the first line being 0
+	 * @param text the line as read
+	 */
+	public void addLine(int page, int line, String text) {// O(n) where n is the length of the line
+		if (page != open) {
+			close();// O(t log t) method
+			open = page;
+			firstLine = line;
+			lines = 0;
+			digest = newDigest();
+			terms = new HashSet<>();
+		}
+		update(digest, text);// O(n) method
+		lines++;
+	}
+
+	/**
+	 * Adds an indexed word occurring on the open page.
+	 *
+	 * @param term the word
+	 */
+	public void addTerm(String term) {// O(1) hash set action
+		if (terms != null)
+			terms.add(term);
+	}
+
+	/**
+	 * Adds the record of a page that is already complete. Any open page is closed
+	 * first.
+	 *
+	 * @param page the record of the page
+	 */
+	public void add(Page page) {// O(log p) tree map action
+		close();
+		pages.put(page.number(), page);// O(log p)
+	}
+
+	/**
+	 * Closes the open page, if any, so its record is complete.
+	 */
+	public void close() {// O(t log t) where t is the amount of words on the page
+		if (open == 0)
+			return;
+		String[] sorted = terms.toArray(new String[0]);
+		Arrays.sort(sorted);// O(t log t)
+		pages.put(open, new Page(open, firstLine, lines, digest.digest(), sorted));// O(log p)
+		open = 0;
+		digest = null;
+		terms = null;
+	}
+
+	/**
+	 * Gets the record of a page. The open page is closed first.
+	 *
+	 * @param page the page number
+	 * @return Page record, null if the text had no lines on the page
+	 */
+	public Page get(int page) {// O(log p) tree map action
+		close();
+		return pages.get(page);// O(log p)
+	}
+
+	/**
+	 * Gets the numbers of every page recorded in ascending order. The open page is
+	 * closed first.
+	 *
+	 * @return Set of page numbers
+	 */
+	public Set<Integer> pageNumbers() {// O(1) creates a view only
+		close();
+		return Collections.unmodifiableSet(pages.keySet());
+	}
+
+	/**
+	 * Works out the hash of the lines of a page, the same as recorded by
+	 * {@link #addLine(int, int, String)}.
+	 *
+	 * @param text the lines of the page
+	 * @return byte[] SHA-256 hash
+	 */
+	public static byte[] hash(List<String> text) {// O(n) where n is the length of the lines
+		MessageDigest digest = newDigest();
+		for (String line : text) {// a loop
+			update(digest, line);// O(n) method
+		}
+		return digest.digest();
+	}
+
+	/*
+	 * Re-reads a revised text into a builder page by page, comparing each page with
+	 * the same page of the last build. The builder is left with the page hashes
+	 * and line table of the revised text, and the words of the pages that changed,
+	 * or were cut from its end, patched. Returns the number of pages tokenized.
+	 * Package-private, used by IndexSetup.
+	 *
+	 * @param builder: the builder of the last build, change tracked
+	 *
+	 * @param dictionary: Map of word to definition
+	 */
+	static int reindex(IndexSetup builder, Map<String, String> dictionary) throws IOException {// O(n + c) method
+		int changed = 0;
+		var previous = builder.pageHashes;
+		var previousLines = builder.lineTable;
+		builder.pageHashes = new PageHashes();
+		builder.lineTable = new LineTable();
+		builder.lineCounter = 0;
+		List<String> pending = new ArrayList<>();// lines of the page being read
+		int open = 0;// page being read
+		try (var lines = Compression.lines(builder.textFile)) {// plain, gzip or deflate
+			for (Iterator<String> it = lines.iterator(); it.hasNext();) {// a loop
+				String line = it.next();
+				builder.lineTable.add(line, 0);// words are counted once the page is known to have changed
+				builder.page = builder.pageModel.pageOf(builder.lineCounter, builder.lineTable);// O(1)
+				if (builder.page != open && !pending.isEmpty()) {
+					changed += patchPage(builder, open, pending, previous, previousLines, dictionary);// O(n) method
+					pending = new ArrayList<>();
+				}
+				open = builder.page;
+				pending.add(line);
+				builder.lineCounter++;
+			}
+		}
+		if (!pending.isEmpty())
+			changed += patchPage(builder, open, pending, previous, previousLines, dictionary);// O(n) method
+
+		for (int number : previous.pageNumbers()) {// a loop, pages cut from the end of the text
+			if (builder.pageHashes.get(number) == null) {
+				for (String term : previous.get(number).terms()) {// a loop
+					patchWord(builder, term, number, 0, dictionary);// O(p) method
+				}
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	/*
+	 * Compares a page of the revised text with the same page of the last build. An
+	 * unchanged page keeps its words, a changed page is tokenized and the
+	 * occurrences of its old and new words replaced. Returns 1 if the page changed,
+	 * otherwise 0.
+	 *
+	 * @param builder: the builder re-indexing
+	 *
+	 * @param number: the page number
+	 *
+	 * @param text: the lines of the page, the last of which is the line before the
+	 * line counter of the builder
+	 *
+	 * @param previous: the page hashes of the last build
+	 *
+	 * @param previousLines: the line table of the last build
+	 *
+	 * @param dictionary: Map of word to definition
+	 */
+	private static int patchPage(IndexSetup builder, int number, List<String> text, PageHashes previous,
+			LineTable previousLines, Map<String, String> dictionary) {// O(n) where n is the length of the lines
+		int firstLine = builder.lineCounter - text.size();
+		byte[] hash = hash(text);// O(n) method
+		var old = previous.get(number);// O(log p)
+		if (old != null && Arrays.equals(old.hash(), hash)) {
+			for (int i = 0; i < text.size(); i++) {// a loop
+				builder.lineTable.setWords(firstLine + i, previousLines.wordsOn(old.firstLine() + i));
+			}
+			builder.pageHashes.add(new Page(number, firstLine, text.size(), hash, old.terms()));
+			return 0;
+		}
+
+		Map<String, Integer> counts = new TreeMap<>();// occurrences of each indexed word on the page
+		for (int i = 0; i < text.size(); i++) {// a loop
+			String[] words = builder.tokenize(text.get(i));
+			builder.lineTable.setWords(firstLine + i, IndexSetup.countWords(words));
+			for (String word : words) {// a loop
+				if (!word.isEmpty() && builder.targetOf(word) != null)
+					counts.merge(word, 1, Integer::sum);// O(log t)
+			}
+		}
+		String[] terms = counts.keySet().toArray(new String[0]);// sorted by the tree map
+		if (old != null) {
+			for (String term : old.terms()) {// a loop
+				counts.putIfAbsent(term, 0);// O(log t)
+			}
+		}
+		for (var e : counts.entrySet()) {// a loop
+			patchWord(builder, e.getKey(), number, e.getValue(), dictionary);// O(p) method
+		}
+		builder.pageHashes.add(new Page(number, firstLine, text.size(), hash, terms));
+		return 1;
+	}
+
+	/*
+	 * Replaces the occurrences of a word on a page. A word new to the index is
+	 * given its definition, or left out if it has none and null definitions are
+	 * removed. A word left with no occurrences is removed from the index.
+	 *
+	 * @param builder: the builder re-indexing
+	 *
+	 * @param word: the word
+	 *
+	 * @param number: the page number
+	 *
+	 * @param occurrences: the number of times the word now occurs on the page
+	 *
+	 * @param dictionary: Map of word to definition
+	 */
+	private static void patchWord(IndexSetup builder, String word, int number, int occurrences,
+			Map<String, String> dictionary) {// O(p) where p is the amount of pages of the word
+		var target = builder.targetOf(word);
+		if (target == null)
+			return;
+		var wordDetail = target.get(word);// O(log n)
+		if (wordDetail == null) {
+			String definition = dictionary.get(word);// O(1)
+			if (occurrences == 0 || (definition == null && builder.removeNullDefinition))
+				return;
+			wordDetail = new WordDetail(word);
+			wordDetail.setDefinition(definition);
+		} else {
+			wordDetail = wordDetail.copy();// O(p) method, the details published are not changed
+		}
+		target.put(word, wordDetail);// O(log n)
+		wordDetail.replacePage(number, occurrences);// O(p) method
+		if (wordDetail.getPages().isEmpty())
+			target.remove(word);// O(log n)
+	}
+
+	/*
+	 * Adds a line and its line break to a digest.
+	 *
+	 * @param digest: the digest to update
+	 *
+	 * @param line: the line without its line break
+	 */
+	private static void update(MessageDigest digest, String line) {// O(n) where n is the length of the line
+		digest.update(line.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) '\n');
+	}
+
+	/*
+	 * Returns a new SHA-256 digest, which every Java platform provides.
+	 */
+	private static MessageDigest newDigest() {// O(1) one action
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);// required of every implementation
+		}
+	}
+}
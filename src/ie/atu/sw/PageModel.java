@@ -0,0 +1,71 @@
+package ie.atu.sw;
+
+/**
+ * The interface PageModel decides which page a line of text is on. It has one
+ * single abstract method (SAM) and is a candidate for a lambda expression. Three
+ * models are provided by its static methods: a fixed number of lines per page,
+ * a new page at each form feed and pages of a fixed size in bytes.
+ *
+ * As the model only needs the LineTable recorded while parsing, a positional
+ * index can be paginated again with a different model without reading the
+ * text again.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see LineTable
+ * @see IndexSetup#setPageModel(PageModel)
+ * @see IndexSetup#repaginate(PageModel)
+ */
+@FunctionalInterface
+public interface PageModel {
+	// No running time as its abstract, dependent on implementing class
+
+	/**
+	 * Returns the page number a line is on, the first page being 1.
+	 *
+	 * @param line  the line number, the first line being 0
+	 * @param lines the table of lines parsed so far, including the line
+	 * @return int page number
+	 */
+	public abstract int pageOf(int line, LineTable lines);
+
+	/**
+	 * A page model of a fixed number of lines per page. The index uses 40 lines
+	 * per page unless another model is set.
+	 *
+	 * @param linesPerPage the number of lines on each page
+	 * @return PageModel of lines per page
+	 * @throws IllegalArgumentException if linesPerPage is less than 1
+	 */
+	public static PageModel linesPerPage(int linesPerPage) {// O(1) creates a lambda only
+		if (linesPerPage < 1)
+			throw new IllegalArgumentException("linesPerPage must be at least 1");
+		return (line, lines) -> line / linesPerPage + 1;// O(1)
+	}
+
+	/**
+	 * A page model where each form feed character starts a new page. A line
+	 * containing a form feed belongs to the page it starts.
+	 *
+	 * @return PageModel of form feed breaks
+	 */
+	public static PageModel formFeed() {// O(1) creates a lambda only
+		return (line, lines) -> lines.formFeedsThrough(line) + 1;// O(1)
+	}
+
+	/**
+	 * A page model of a fixed number of bytes per page. A line belongs to the page
+	 * its first byte is on.
+	 *
+	 * @param bytesPerPage the number of bytes on each page
+	 * @return PageModel of bytes per page
+	 * @throws IllegalArgumentException if bytesPerPage is less than 1
+	 */
+	public static PageModel byteSize(long bytesPerPage) {// O(1) creates a lambda only
+		if (bytesPerPage < 1)
+			throw new IllegalArgumentException("bytesPerPage must be at least 1");
+		return (line, lines) -> (int) (lines.offsetOf(line) / bytesPerPage) + 1;// O(1)
+	}
+}
@@ -17,6 +17,7 @@ public interface Parser {
 	 * Parses the file given as a parameter.
 	 * 
 	 * @param file the file to be parsed
+	 * @throws IndexingException if the file cannot be read
 	 */
 	public abstract void parse(String file);
 
@@ -0,0 +1,159 @@
+package ie.atu.sw;
+
+import java.util.Arrays;
+
+/**
+ * The class PositionList holds every position a word occurs at in a text, a
+ * position being a line number and the word offset on that line. Positions are
+ * added in the order they are parsed and stored delta encoded as variable
+ * length integers: the gap from the previous line, then either the gap from the
+ * previous offset on the same line or the offset on a new line. Most positions
+ * take two or three bytes.
+ *
+ * Positions are returned packed into a long, the line in the high 32 bits and
+ * the offset in the low 32 bits, so they sort by line then offset.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see WordDetail#getPositions()
+ */
+public class PositionList {
+	private byte[] bytes = new byte[8];// delta encoded positions
+	private int length;// bytes in use
+	private int size;// number of positions
+	private int lastLine;// line of the last position added
+	private int lastOffset;// offset of the last position added
+
+	/**
+	 * Constructor of the PositionList class, creates a new empty list.
+	 */
+	public PositionList() {
+		super();
+	}
+
+	/**
+	 * Adds a position to the end of the list. Positions must be added in order of
+	 * line then offset.
+	 *
+	 * @param line   the line number, the first line being 0
+	 * @param offset the word offset on the line, the first word being 0
+	 * @throws IllegalArgumentException if the position is before the last one
+	 */
+	public void add(int line, int offset) {// O(1) amortised, array doubles when full
+		if (size > 0 && (line < lastLine || (line == lastLine && offset < lastOffset)))
+			throw new IllegalArgumentException("positions must be added in order");
+		int lineDelta = size == 0 ? line : line - lastLine;
+		writeVarInt(lineDelta);
+		writeVarInt(lineDelta == 0 && size > 0 ? offset - lastOffset : offset);
+		lastLine = line;
+		lastOffset = offset;
+		size++;
+	}
+
+	/**
+	 * Gets the number of positions in the list.
+	 *
+	 * @return int number of positions
+	 */
+	public int size() {// O(1) one action only
+		return size;
+	}
+
+	/**
+	 * Gets the number of bytes used to hold the positions.
+	 *
+	 * @return int number of bytes
+	 */
+	public int byteSize() {// O(1) one action only
+		return length;
+	}
+
+	/**
+	 * Decodes all positions in order, each packed into a long.
+	 *
+	 * @return long[] of packed positions
+	 * @see #line(long)
+	 * @see #offset(long)
+	 */
+	public long[] toArray() {// O(n) where n is the amount of positions
+		long[] positions = new long[size];
+		int i = 0;
+		int pos = 0;
+		int line = 0;
+		int offset = 0;
+		while (i < size) {// a loop
+			int lineDelta = 0;
+			int shift = 0;
+			byte b;
+			do {// a loop, at most 5 bytes
+				b = bytes[pos++];
+				lineDelta |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			int value = 0;
+			shift = 0;
+			do {// a loop, at most 5 bytes
+				b = bytes[pos++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			if (lineDelta == 0 && i > 0) {
+				offset += value;
+			} else {
+				line += lineDelta;
+				offset = value;
+			}
+			positions[i++] = pack(line, offset);
+		}
+		return positions;
+	}
+
+	/**
+	 * Packs a line and offset into a long.
+	 *
+	 * @param line   the line number
+	 * @param offset the word offset on the line
+	 * @return long packed position
+	 */
+	public static long pack(int line, int offset) {// O(1) one action only
+		return ((long) line << 32) | (offset & 0xffffffffL);
+	}
+
+	/**
+	 * Gets the line of a packed position.
+	 *
+	 * @param position packed position
+	 * @return int line number
+	 */
+	public static int line(long position) {// O(1) one action only
+		return (int) (position >>> 32);
+	}
+
+	/**
+	 * Gets the word offset of a packed position.
+	 *
+	 * @param position packed position
+	 * @return int word offset
+	 */
+	public static int offset(long position) {// O(1) one action only
+		return (int) position;
+	}
+
+	/*
+	 * Writes a non negative int as a variable length integer, 7 bits per byte with
+	 * the top bit set on all but the last byte.
+	 *
+	 * @param value: the value to write
+	 */
+	private void writeVarInt(int value) {// O(1) at most 5 bytes
+		if (length + 5 > bytes.length)
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5));
+		while ((value & ~0x7f) != 0) {// a loop, at most 5 bytes
+			bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		bytes[length++] = (byte) value;
+	}
+}
@@ -0,0 +1,189 @@
+package ie.atu.sw;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The class Postings contains methods on postings lists, sorted arrays of
+ * distinct page numbers. Intersection and difference use galloping search:
+ * each value of the shorter list is found in the longer list by doubling steps
+ * from the last match then a binary search, so a short list against a long one
+ * costs O(m log(n/m)) rather than O(m + n).
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see QueryEngine
+ */
+public class Postings {
+
+	/*
+	 * Private constructor, the class has static methods only.
+	 */
+	private Postings() {
+		super();
+	}
+
+	/**
+	 * Creates a postings list from the pages a word occurs on, pages are in
+	 * ascending order and may repeat.
+	 *
+	 * @param pages List of page numbers in ascending order
+	 * @return int[] of distinct page numbers
+	 */
+	public static int[] of(List<Integer> pages) {// O(n) due to loop
+		int[] postings = new int[pages.size()];
+		int size = 0;
+		for (int page : pages) {// a loop
+			if (size == 0 || postings[size - 1] != page)
+				postings[size++] = page;
+		}
+		return Arrays.copyOf(postings, size);
+	}
+
+	/**
+	 * Creates a postings list of every page from first to last.
+	 *
+	 * @param first the first page
+	 * @param last  the last page
+	 * @return int[] of page numbers
+	 */
+	public static int[] range(int first, int last) {// O(n) due to loop
+		int[] postings = new int[Math.max(0, last - first + 1)];
+		for (int i = 0; i < postings.length; i++) {// a loop
+			postings[i] = first + i;
+		}
+		return postings;
+	}
+
+	/**
+	 * Returns the pages in both lists.
+	 *
+	 * @param a postings list
+	 * @param b postings list
+	 * @return int[] of pages in a and b
+	 */
+	public static int[] intersect(int[] a, int[] b) {// O(m log(n/m)) where m is the shorter list
+		int[] small = a.length <= b.length ? a : b;
+		int[] large = small == a ? b : a;
+		int[] result = new int[small.length];
+		int size = 0;
+		int from = 0;
+		for (int page : small) {// a loop
+			from = gallop(large, from, page);// O(log(n/m)) amortised
+			if (from == large.length)
+				break;
+			if (large[from] == page)
+				result[size++] = page;
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Returns the pages in the first list that are not in the second.
+	 *
+	 * @param a postings list
+	 * @param b postings list of pages to remove
+	 * @return int[] of pages in a and not in b
+	 */
+	public static int[] difference(int[] a, int[] b) {// O(m log(n/m)) where m is the length of a
+		int[] result = new int[a.length];
+		int size = 0;
+		int from = 0;
+		for (int page : a) {// a loop
+			from = gallop(b, from, page);// O(log(n/m)) amortised
+			if (from == b.length || b[from] != page)
+				result[size++] = page;
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Returns the pages in either list.
+	 *
+	 * @param a postings list
+	 * @param b postings list
+	 * @return int[] of pages in a or b
+	 */
+	public static int[] union(int[] a, int[] b) {// O(m + n) merge of both lists
+		int[] result = new int[a.length + b.length];
+		int i = 0;
+		int j = 0;
+		int size = 0;
+		while (i < a.length && j < b.length) {// a loop
+			if (a[i] < b[j])
+				result[size++] = a[i++];
+			else if (a[i] > b[j])
+				result[size++] = b[j++];
+			else {
+				result[size++] = a[i++];
+				j++;
+			}
+		}
+		while (i < a.length)// a loop
+			result[size++] = a[i++];
+		while (j < b.length)// a loop
+			result[size++] = b[j++];
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Finds the first index at or after from holding a value at least target.
+	 * Steps forward 1, 2, 4, ... places then binary searches the last step.
+	 *
+	 * @param a      sorted array
+	 * @param from   the index to start at
+	 * @param target the value to find
+	 * @return int index, a.length if every value is smaller
+	 */
+	public static int gallop(int[] a, int from, int target) {// O(log d) where d is the distance moved
+		int step = 1;
+		int low = from;
+		int high = from;
+		while (high < a.length && a[high] < target) {// a loop
+			low = high + 1;
+			high = from + step;
+			step <<= 1;
+		}
+		high = Math.min(high, a.length);
+		while (low < high) {// a loop, binary search
+			int mid = (low + high) >>> 1;
+			if (a[mid] < target)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the first index at or after from holding a value at least target, for
+	 * packed positions.
+	 *
+	 * @param a      sorted array
+	 * @param from   the index to start at
+	 * @param target the value to find
+	 * @return int index, a.length if every value is smaller
+	 * @see #gallop(int[], int, int)
+	 */
+	public static int gallop(long[] a, int from, long target) {// O(log d) where d is the distance moved
+		int step = 1;
+		int low = from;
+		int high = from;
+		while (high < a.length && a[high] < target) {// a loop
+			low = high + 1;
+			high = from + step;
+			step <<= 1;
+		}
+		high = Math.min(high, a.length);
+		while (low < high) {// a loop, binary search
+			int mid = (low + high) >>> 1;
+			if (a[mid] < target)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+}
@@ -0,0 +1,25 @@
+package ie.atu.sw;
+
+/**
+ * The interface ProgressListener is told of the progress of a build, the same
+ * steps the ProgressBar prints to the console. A candidate for a lambda
+ * expression.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#buildIndexAsync(java.time.Duration, ProgressListener)
+ */
+@FunctionalInterface
+public interface ProgressListener {
+	// No running time as its abstract, dependent on implementing class
+
+	/**
+	 * Called each time the build progresses, on the thread running the build.
+	 *
+	 * @param progress the current value indicating progress towards completion
+	 * @param total    the value indicating completion
+	 */
+	public abstract void progress(int progress, int total);
+}
@@ -0,0 +1,299 @@
+package ie.atu.sw;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The class QueryEngine answers boolean and phrase queries on a built index,
+ * returning the pages that match. A query is made of words, quoted phrases,
+ * parentheses and the operators <b>AND</b>, <b>OR</b> and <b>NOT</b> (upper
+ * case only, so the words "and", "or" and "not" can still be searched). Words
+ * next to each other with no operator are joined by AND. NOT binds tightest,
+ * then AND, then OR. All words are case insensitive.
+ *
+ * <pre>
+ * fox AND dog          pages with both words
+ * fox NOT dog          pages with fox and without dog
+ * (fox OR cat) dog     pages with dog and either fox or cat
+ * "lazy dog"           pages where the phrase starts
+ * </pre>
+ *
+ * Postings of each word are built once and kept, so an engine should be
+ * created after the index is built. Phrases need an index built with
+ * positions, a phrase may run on from the end of one line to the start of the
+ * next.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see Postings
+ * @see IndexSetup#setPositional(boolean)
+ */
+public class QueryEngine {
+	private final IndexSetup indexer;// the built index queried
+	private final Map<String, int[]> postings = new ConcurrentHashMap<>();// postings of each word looked up
+	private List<String> tokens;// tokens of the query being parsed
+	private int next;// index of the next token to parse
+
+	/**
+	 * Constructor of the QueryEngine class, creates an engine over a built index.
+	 *
+	 * @param indexer the built index
+	 */
+	public QueryEngine(IndexSetup indexer) {// O(1) one action
+		this.indexer = indexer;
+	}
+
+	/**
+	 * Returns the pages matching a query in ascending order.
+	 *
+	 * @param query the query
+	 * @return int[] of page numbers
+	 * @throws IllegalArgumentException if the query is malformed
+	 * @throws IllegalStateException    if the query has a phrase and the index was
+	 *                                  not built with positions
+	 */
+	public synchronized int[] query(String query) {// O(t * m log(n/m)) where t is the amount of terms
+		tokens = tokenize(query);// O(n) method
+		next = 0;
+		if (tokens.isEmpty())
+			throw new IllegalArgumentException("query is empty");
+		var result = parseOr();
+		if (next != tokens.size())
+			throw new IllegalArgumentException("unexpected '" + tokens.get(next) + "' in query");
+		return result.resolve(universe());
+	}
+
+	/**
+	 * Returns the pages a word occurs on.
+	 *
+	 * @param word the word, case insensitive
+	 * @return int[] of page numbers, empty if the word is not in the index
+	 */
+	public int[] pages(String word) {// O(log n) lookup, O(m) first time for a word
+		return postings.computeIfAbsent(word.toLowerCase(), w -> {
+			var wordDetail = indexer.index.get(w);// O(log n)
+			return wordDetail == null ? new int[0] : Postings.of(wordDetail.getPages());// O(m) method
+		});
+	}
+
+	/**
+	 * Returns the pages a phrase starts on. Words of the phrase must be next to
+	 * each other in the text in the order given.
+	 *
+	 * @param phrase the words of the phrase, case insensitive
+	 * @return int[] of page numbers
+	 * @throws IllegalStateException if the index was not built with positions
+	 */
+	public int[] phrase(String phrase) {// O(k * m log(n/m)) where k is the amount of words
+		if (!indexer.builtPositional)
+			throw new IllegalStateException("phrase queries need an index built with positions");
+		String[] words = words(phrase);
+		if (words.length == 0)
+			return new int[0];
+		long[][] positions = new long[words.length][];
+		for (int i = 0; i < words.length; i++) {// a loop
+			positions[i] = indexer.positionsOf(words[i]);// O(log n + m) method
+			if (positions[i].length == 0)
+				return new int[0];
+		}
+		int[] pages = new int[positions[0].length];
+		int size = 0;
+		int[] from = new int[words.length];
+		for (long start : positions[0]) {// a loop
+			long position = start;
+			boolean match = true;
+			for (int i = 1; i < words.length && match; i++) {// a loop
+				position = following(position);
+				from[i] = Postings.gallop(positions[i], from[i], position);// O(log d) method
+				match = from[i] < positions[i].length && positions[i][from[i]] == position;
+			}
+			if (match) {
+				int page = indexer.pageModel.pageOf(PositionList.line(start), indexer.lineTable);
+				if (size == 0 || pages[size - 1] != page)
+					pages[size++] = page;
+			}
+		}
+		return Arrays.copyOf(pages, size);
+	}
+
+	/*
+	 * Returns the position of the word after a position, which is on the next line
+	 * if the position is the last word of its line.
+	 *
+	 * @param position: the packed position
+	 */
+	private long following(long position) {// O(1) one lookup
+		int line = PositionList.line(position);
+		int offset = PositionList.offset(position) + 1;
+		if (offset < indexer.lineTable.wordsOn(line))
+			return PositionList.pack(line, offset);
+		return PositionList.pack(line + 1, 0);
+	}
+
+	/*
+	 * Returns every page of the text, used to resolve NOT.
+	 */
+	private int[] universe() {// O(n) where n is the amount of pages
+		return Postings.range(1, indexer.getPageCount());
+	}
+
+	/*
+	 * or := and ("OR" and)*
+	 */
+	private Operand parseOr() {// O(t) recursive descent over the tokens
+		var left = parseAnd();
+		while (accept("OR")) {// a loop
+			var right = parseAnd();
+			int[] universe = universe();
+			left = new Operand(Postings.union(left.resolve(universe), right.resolve(universe)), false);
+		}
+		return left;
+	}
+
+	/*
+	 * and := not (["AND"] not)*. Positive operands are intersected shortest first
+	 * and negated operands are then removed, so NOT only needs the universe if
+	 * every operand is negated.
+	 */
+	private Operand parseAnd() {// O(t) recursive descent over the tokens
+		List<int[]> positive = new ArrayList<>();
+		List<int[]> negative = new ArrayList<>();
+		do {// a loop
+			var operand = parseNot();
+			(operand.negated() ? negative : positive).add(operand.pages());
+		} while (accept("AND") || startsOperand());
+		if (positive.isEmpty()) {
+			int[] excluded = negative.get(0);
+			for (int i = 1; i < negative.size(); i++) {// a loop
+				excluded = Postings.union(excluded, negative.get(i));
+			}
+			return new Operand(excluded, true);
+		}
+		positive.sort(Comparator.comparingInt(pages -> pages.length));// O(t log t)
+		int[] result = positive.get(0);
+		for (int i = 1; i < positive.size() && result.length > 0; i++) {// a loop
+			result = Postings.intersect(result, positive.get(i));
+		}
+		for (int[] pages : negative) {// a loop
+			result = Postings.difference(result, pages);
+		}
+		return new Operand(result, false);
+	}
+
+	/*
+	 * not := "NOT" not | primary
+	 */
+	private Operand parseNot() {// O(t) recursive descent over the tokens
+		if (accept("NOT")) {
+			var operand = parseNot();
+			return new Operand(operand.pages(), !operand.negated());
+		}
+		return parsePrimary();
+	}
+
+	/*
+	 * primary := "(" or ")" | phrase | word
+	 */
+	private Operand parsePrimary() {// O(t) recursive descent over the tokens
+		if (next == tokens.size())
+			throw new IllegalArgumentException("query ends unexpectedly");
+		String token = tokens.get(next++);
+		if (token.equals("(")) {
+			var operand = parseOr();
+			if (!accept(")"))
+				throw new IllegalArgumentException("missing ')' in query");
+			return operand;
+		}
+		if (token.equals(")") || token.equals("AND") || token.equals("OR"))
+			throw new IllegalArgumentException("unexpected '" + token + "' in query");
+		if (token.startsWith("\""))
+			return new Operand(phrase(token.substring(1)), false);
+		String[] words = words(token);
+		if (words.length == 1)
+			return new Operand(pages(words[0]), false);
+		return new Operand(phrase(token), false);// a word with punctuation, such as don't
+	}
+
+	/*
+	 * Returns true if the next token can start an operand, for implicit AND.
+	 */
+	private boolean startsOperand() {// O(1) one comparison
+		if (next == tokens.size())
+			return false;
+		String token = tokens.get(next);
+		return !token.equals(")") && !token.equals("OR") && !token.equals("AND");
+	}
+
+	/*
+	 * Moves past the next token if it is the one expected.
+	 *
+	 * @param token: the token expected
+	 */
+	private boolean accept(String token) {// O(1) one comparison
+		if (next < tokens.size() && tokens.get(next).equals(token)) {
+			next++;
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Splits a query into parentheses, words and phrases. A phrase token keeps its
+	 * opening quote to tell it apart from a word.
+	 *
+	 * @param query: the query
+	 */
+	private static List<String> tokenize(String query) {// O(n) where n is the length of the query
+		List<String> tokens = new ArrayList<>();
+		int i = 0;
+		while (i < query.length()) {// a loop
+			char c = query.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '(' || c == ')') {
+				tokens.add(String.valueOf(c));
+				i++;
+			} else if (c == '"') {
+				int end = query.indexOf('"', i + 1);
+				if (end < 0)
+					throw new IllegalArgumentException("missing closing quote in query");
+				tokens.add(query.substring(i, end));
+				i = end + 1;
+			} else {
+				int start = i;
+				while (i < query.length() && !Character.isWhitespace(query.charAt(i)) && query.charAt(i) != '('
+						&& query.charAt(i) != ')' && query.charAt(i) != '"') {// a loop
+					i++;
+				}
+				tokens.add(query.substring(start, i));
+			}
+		}
+		return tokens;
+	}
+
+	/*
+	 * Splits text into words with the tokenizer of the builder, so a query finds
+	 * the words the text was indexed by. The empty token of text starting with a
+	 * separator is left out.
+	 *
+	 * @param text: the text to split
+	 */
+	private String[] words(String text) {// O(n) where n is the length of the text
+		return Arrays.stream(indexer.tokenize(text)).filter(word -> !word.isEmpty()).toArray(String[]::new);// O(n)
+	}
+
+	/*
+	 * The pages of part of a query, negated if they are pages to exclude.
+	 */
+	private record Operand(int[] pages, boolean negated) {
+
+		/*
+		 * Returns the pages, taking negated pages from every page.
+		 */
+		int[] resolve(int[] universe) {// O(n) where n is the amount of pages
+			return negated ? Postings.difference(universe, pages) : pages;
+		}
+	}
+}
@@ -1,23 +1,75 @@
 package ie.atu.sw;
 
+import java.nio.file.Path;
+
 /**
  * The class Runner contains the main method of the application, it creates a
- * new instance of Menu and begins it operation.
+ * new instance of Menu and begins it operation. Started with the argument
+ * <code>server</code> it instead runs an IndexServer, with <code>shard</code>
+ * it builds an index with a ShardCoordinator, and with <code>kwic</code> it
+ * prints the context of each occurrence of a word.
  * 
  * @author Richard Daly
  * @version 1
  * @since Java 19.
  *
  * @see Menu
+ * @see IndexServer
+ * @see ShardCoordinator
+ * @see Concordance
  */
 public class Runner {
 
 	/**
-	 * The main method of the application, no command line arguments expected.
+	 * The main method of the application, no command line arguments expected for
+	 * the menu. For server mode the arguments are
+	 * <code>server &lt;dictionary&gt; &lt;stop words&gt; [port] [root]</code>,
+	 * the root being the directory texts and outputs must be under. For
+	 * shard mode they are <code>shard &lt;text&gt; &lt;dictionary&gt; &lt;stop
+	 * words&gt; &lt;output&gt; [workers]</code>. For kwic mode they are
+	 * <code>kwic &lt;text&gt; &lt;dictionary&gt; &lt;stop words&gt; &lt;word&gt;
+	 * [width]</code>.
 	 * 
 	 * @param args command line arguments
+	 * @throws Exception if the server cannot be started, the shards built or the
+	 *                   text read
 	 */
-	public static void main(String[] args) {// O(1)
+	public static void main(String[] args) throws Exception {// O(1)
+		if (args.length >= 3 && args[0].equals("server")) {
+			int port = args.length > 3 ? Integer.parseInt(args[3]) : 8080;
+			Path root = Path.of(args.length > 4 ? args[4] : "");// the working directory by default
+			IndexServer server = new IndexServer(args[1], args[2], port, root);
+			server.start();
+			System.out.println("[INFO] Index server listening on localhost:" + server.getPort());
+			return;
+		}
+		if (args.length >= 5 && args[0].equals("shard")) {
+			ShardCoordinator coordinator = new ShardCoordinator();
+			coordinator.setTextFile(args[1]);
+			coordinator.setDictionaryFile(args[2]);
+			coordinator.setStopWordsFile(args[3]);
+			coordinator.setOutputFile(args[4]);
+			if (args.length > 5)
+				coordinator.setWorkers(Integer.parseInt(args[5]));
+			int shards = coordinator.build();
+			System.out.println("[INFO] Index of " + shards + " shards written to " + args[4]);
+			return;
+		}
+		if (args.length >= 5 && args[0].equals("kwic")) {
+			IndexBuilder builder = new IndexBuilder();
+			builder.setTextFile(args[1]);
+			builder.setDictionaryFile(args[2]);
+			builder.setStopWordsFile(args[3]);
+			builder.setPositional(true);
+			builder.setShowProgress(false);
+			builder.createIndex();// O(n) method
+			int width = args.length > 5 ? Integer.parseInt(args[5]) : 40;
+			for (var context : builder.concordance(args[4], width)) {// a loop
+				System.out.printf("%6d  %" + width + "s[%s]%s%n", context.page(), context.before(), context.word(),
+						context.after());
+			}
+			return;
+		}
 		Menu menu = new Menu();
 		menu.run();
 
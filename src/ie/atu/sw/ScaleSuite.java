@@ -0,0 +1,901 @@
+package ie.atu.sw;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Flow;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * The class ScaleSuite checks the builders at production sizes. For each size
+ * it generates a corpus with CorpusGenerator, with \r\n line breaks, form feeds
+ * and letters outside ASCII, builds both index types in every build mode under
+ * each page model, checks that every mode of a type writes exactly the same
+ * index under a model and reports the build time and peak heap of each build. The tokenizer
+ * backends are timed alone on the text and their words compared. The
+ * DualIndexBuilder is checked against both types, a re-index of a revised text
+ * against a full build of it, and a build sharded across worker processes
+ * against both types, as is a build stopped after its first checkpoint and
+ * resumed. Every ordering is written sequentially and in parallel and checked
+ * to hold the lines of the reference, and the entries published to a slow
+ * subscriber are checked to make the reference. The concordance of a sample of
+ * words is checked against the text, the completions and fuzzy matches of the
+ * TermTrie against a search of every word, and boolean and phrase queries of
+ * the QueryEngine against a scan of the text. It exits with status 1 if any
+ * mode differs, so it can be run after each change.
+ *
+ * <code>java ie.atu.sw.ScaleSuite [lines ...]</code>, the sizes default to
+ * 10,000 and 100,000 lines. New build modes are added to the list of modes.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see CorpusGenerator
+ */
+public class ScaleSuite {
+	private static final long SEED = 2023;// seed of every generated corpus
+
+	/*
+	 * A way of building the index, applied to a builder whose files are already
+	 * set. The path is the directory of the generated corpus.
+	 */
+	private record BuildMode(String name, BiConsumer<IndexSetup, Path> configure) {
+	}
+
+	// every build mode, the first is the reference the others are compared with
+	private static final List<BuildMode> MODES = List.of(//
+			new BuildMode("sequential", (b, dir) -> {
+			}), //
+			new BuildMode("parallel output", (b, dir) -> b.setParallelOutput(true)), //
+			new BuildMode("positional", (b, dir) -> b.setPositional(true)), //
+			new BuildMode("bigrams", (b, dir) -> b.setBigrams(true)), //
+			new BuildMode("live snapshots", (b, dir) -> b.setSnapshots(4096)), //
+			new BuildMode("fork join", (b, dir) -> b.setExecutionStrategy(ExecutionStrategy.FORK_JOIN)), //
+			new BuildMode("sequential strategy", (b, dir) -> b.setExecutionStrategy(ExecutionStrategy.SEQUENTIAL)), //
+			new BuildMode("scalar tokenizer", (b, dir) -> b.setTokenizer(Tokenizer.SCALAR)), //
+			new BuildMode("regex tokenizer", (b, dir) -> b.setTokenizer(Tokenizer.REGEX)), //
+			new BuildMode("gzip sources", (b, dir) -> {
+				b.setTextFile(dir.resolve("text.txt.gz").toString());
+				b.setDictionaryFile(dir.resolve("dictionary.csv.gz").toString());
+			}));
+
+	// every page model the modes are built under, the first is the default the other checks use
+	private static final List<Entry<String, Supplier<PageModel>>> PAGE_MODELS = List.of(//
+			Map.entry("40 lines a page", () -> PageModel.linesPerPage(40)), //
+			Map.entry("form feeds", PageModel::formFeed), //
+			Map.entry("2 KB a page", () -> PageModel.byteSize(2048)));
+
+	// the index types built in every mode
+	private static final Map<String, Supplier<IndexSetup>> TYPES = Map.of(//
+			"index", IndexBuilder::new, //
+			"stop words index", AlternateIndexBuilder::new);
+
+	/*
+	 * Private constructor, the class is run from its main method only.
+	 */
+	private ScaleSuite() {
+		super();
+	}
+
+	/**
+	 * Runs the suite.
+	 *
+	 * @param args the sizes in lines to run, optional
+	 * @throws Exception if a corpus cannot be generated
+	 */
+	public static void main(String[] args) throws Exception {// O(s * m * n) sizes by modes by build
+		int[] sizes = args.length == 0 ? new int[] { 10_000, 100_000 }
+				: Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+		boolean identical = true;
+		System.out.printf("%-10s %-18s %-18s %10s %10s %s%n", "lines", "type", "mode", "ms", "peak MB", "result");
+		for (int size : sizes) {// a loop
+			Path dir = Files.createTempDirectory("scale-" + size + "-");
+			generate(dir, size);
+			Map<String, byte[]> references = new HashMap<>();
+			for (var pages : PAGE_MODELS) {// a loop
+				System.out.println("pages of " + pages.getKey());
+				for (var type : new TreeMap<>(TYPES).entrySet()) {// a loop
+					byte[] reference = null;
+					for (BuildMode mode : MODES) {// a loop
+						Path output = dir.resolve("index.txt");
+						IndexSetup builder = type.getValue().get();
+						builder.setShowProgress(false);
+						builder.setTextFile(dir.resolve("text.txt").toString());
+						builder.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+						builder.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+						builder.setOutputFile(output.toString());
+						builder.setDisplayUniqueWordCount(true);
+						builder.setPageModel(pages.getValue().get());
+						mode.configure().accept(builder, dir);
+
+						IndexSetup.clearSourceCache();// every mode pays for parsing its sources
+						System.gc();
+						resetPeakHeap();
+						long start = System.nanoTime();
+						builder.buildIndex();
+						long millis = (System.nanoTime() - start) / 1_000_000;
+						long peak = peakHeap();
+
+						byte[] written = Files.readAllBytes(output);
+						String result = "reference";
+						if (reference == null) {
+							reference = written;
+							references.putIfAbsent(type.getKey(), written);// of the default model
+						} else if (Arrays.equals(reference, written)) {
+							result = "identical";
+						} else {
+							result = "DIFFERS at byte " + Arrays.mismatch(reference, written);
+							identical = false;
+						}
+						System.out.printf("%-10d %-18s %-18s %10d %10d %s%n", size, type.getKey(), mode.name(),
+								millis, peak / (1024 * 1024), result);
+					}
+				}
+			}
+			identical &= checkTokenizers(dir, size);
+			identical &= checkDual(dir, size, references);
+			identical &= checkReindex(dir, size);
+			identical &= checkShards(dir, size, references);
+			identical &= checkOrderings(dir, size, references);
+			identical &= checkPublisher(dir, size, references);
+			identical &= checkResume(dir, size, references);
+			identical &= checkConcordance(dir, size);
+			identical &= checkTermTrie(dir, size);
+			identical &= checkQueries(dir, size);
+			try (var files = Files.list(dir)) {
+				for (Path file : files.toList()) {// a loop
+					Files.delete(file);
+				}
+			}
+			Files.delete(dir);
+		}
+		if (!identical) {
+			System.out.println("[ERROR] Build modes produced different indexes");
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Tokenizes every line of the text with each tokenizer backend, reporting the
+	 * throughput of the fastest of three runs, and compares the words of each with
+	 * those of the regular expressions.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 */
+	private static boolean checkTokenizers(Path dir, int size) throws Exception {// O(b * n) backends by lines
+		List<String> lines = Files.readAllLines(dir.resolve("text.txt"));
+		long chars = lines.stream().mapToLong(String::length).sum();
+		List<String[]> expected = lines.stream().map(Tokenizer.REGEX::tokenize).toList();
+		boolean identical = true;
+		for (Tokenizer tokenizer : Tokenizer.values()) {// a loop
+			long fastest = Long.MAX_VALUE;
+			boolean same = true;
+			for (int run = 0; run < 3; run++) {// a loop
+				long start = System.nanoTime();
+				for (int i = 0; i < lines.size(); i++) {// a loop
+					String[] words = tokenizer.tokenize(lines.get(i));
+					if (run == 0)
+						same &= Arrays.equals(expected.get(i), words);
+				}
+				fastest = Math.min(fastest, System.nanoTime() - start);
+			}
+			double megabytes = chars * 1e3 / fastest;// characters per microsecond
+			String result = String.format("%.0f MB/s, ", megabytes) + (same ? "identical" : "DIFFERS");
+			identical &= same;
+			System.out.printf("%-10d %-18s %-18s %10d %10s %s%n", size, "tokenizer", tokenizer.name().toLowerCase(),
+					fastest / 1_000_000, "-", result);
+		}
+		return identical;
+	}
+
+	/*
+	 * Builds both indexes in one pass with the DualIndexBuilder and compares each
+	 * with the reference of its type.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 *
+	 * @param references: the reference output of each type
+	 */
+	private static boolean checkDual(Path dir, int size, Map<String, byte[]> references) throws Exception {// O(n)
+		var builder = new DualIndexBuilder();
+		builder.setShowProgress(false);
+		builder.setTextFile(dir.resolve("text.txt").toString());
+		builder.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+		builder.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+		builder.setOutputFile(dir.resolve("index.txt").toString());
+		builder.setStopWordsOutputFile(dir.resolve("stopwords-index.txt").toString());
+		builder.setDisplayUniqueWordCount(true);
+
+		IndexSetup.clearSourceCache();
+		System.gc();
+		resetPeakHeap();
+		long start = System.nanoTime();
+		builder.buildIndex();
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		long peak = peakHeap();
+
+		boolean main = Arrays.equals(references.get("index"), Files.readAllBytes(dir.resolve("index.txt")));
+		boolean stop = Arrays.equals(references.get("stop words index"),
+				Files.readAllBytes(dir.resolve("stopwords-index.txt")));
+		String result = main && stop ? "identical"
+				: "DIFFERS" + (main ? "" : " index") + (stop ? "" : " stop words index");
+		System.out.printf("%-10d %-18s %-18s %10d %10d %s%n", size, "both indexes", "dual single pass", millis,
+				peak / (1024 * 1024), result);
+		return main && stop;
+	}
+
+	/*
+	 * Revises the text, changing a line in the middle and cutting the last 50
+	 * lines, then re-indexes a change tracked build of the original text and
+	 * compares it with a full build of the revised text, for each index type.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 */
+	private static boolean checkReindex(Path dir, int size) throws Exception {// O(t * n) types by build
+		List<String> lines = new ArrayList<>(Files.readAllLines(dir.resolve("text.txt")));
+		lines.set(lines.size() / 2, "A revised line, with words that were not there before.");
+		lines.subList(Math.max(0, lines.size() - 50), lines.size()).clear();
+		Files.write(dir.resolve("revised.txt"), lines);
+
+		boolean identical = true;
+		for (var type : new TreeMap<>(TYPES).entrySet()) {// a loop
+			IndexSetup full = type.getValue().get();
+			IndexSetup patched = type.getValue().get();
+			for (IndexSetup builder : List.of(full, patched)) {// a loop
+				builder.setShowProgress(false);
+				builder.setTextFile(dir.resolve("text.txt").toString());
+				builder.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+				builder.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+				builder.setOutputFile(dir.resolve(builder == full ? "full.txt" : "patched.txt").toString());
+				builder.setDisplayUniqueWordCount(true);
+			}
+			patched.setChangeTracking(true);
+			patched.createIndex();
+
+			full.setTextFile(dir.resolve("revised.txt").toString());
+			full.buildIndex();
+
+			patched.setTextFile(dir.resolve("revised.txt").toString());
+			System.gc();
+			resetPeakHeap();
+			long start = System.nanoTime();
+			int changed = patched.reindex();
+			patched.outputIndex();
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			long peak = peakHeap();
+
+			byte[] expected = Files.readAllBytes(dir.resolve("full.txt"));
+			byte[] written = Files.readAllBytes(dir.resolve("patched.txt"));
+			String result = changed + " of " + patched.getPageCount() + " pages, ";
+			if (Arrays.equals(expected, written)) {
+				result += "identical";
+			} else {
+				result += "DIFFERS at byte " + Arrays.mismatch(expected, written);
+				identical = false;
+			}
+			System.out.printf("%-10d %-18s %-18s %10d %10d %s%n", size, type.getKey(), "re-index revision", millis,
+					peak / (1024 * 1024), result);
+		}
+		return identical;
+	}
+
+	/*
+	 * Builds each index type with three worker processes and compares the merged
+	 * index with the reference of its type.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 *
+	 * @param references: the reference output of each type
+	 */
+	private static boolean checkShards(Path dir, int size, Map<String, byte[]> references)
+			throws Exception {// O(t * n) types by build
+		boolean identical = true;
+		for (var type : new TreeMap<>(TYPES).entrySet()) {// a loop
+			var coordinator = new ShardCoordinator();
+			coordinator.setTextFile(dir.resolve("text.txt").toString());
+			coordinator.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+			coordinator.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+			coordinator.setOutputFile(dir.resolve("sharded.txt").toString());
+			coordinator.setStopWordsIndex(type.getKey().equals("stop words index"));
+			coordinator.setDisplayUniqueWordCount(true);
+			coordinator.setWorkers(3);
+
+			System.gc();
+			resetPeakHeap();
+			long start = System.nanoTime();
+			int shards = coordinator.build();
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			long peak = peakHeap();
+
+			byte[] expected = references.get(type.getKey());
+			byte[] written = Files.readAllBytes(dir.resolve("sharded.txt"));
+			String result = shards + " shards, ";
+			if (Arrays.equals(expected, written)) {
+				result += "identical";
+			} else {
+				result += "DIFFERS at byte " + Arrays.mismatch(expected, written);
+				identical = false;
+			}
+			System.out.printf("%-10d %-18s %-18s %10d %10d %s%n", size, type.getKey(), "sharded processes", millis,
+					peak / (1024 * 1024), result);
+		}
+		return identical;
+	}
+
+	/*
+	 * Builds each index type once then writes it in every ordering, sequentially
+	 * and in parallel. Both writes of an ordering must be the same, and hold the
+	 * same lines as the reference of its type.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 *
+	 * @param references: the reference output of each type
+	 */
+	private static boolean checkOrderings(Path dir, int size, Map<String, byte[]> references)
+			throws Exception {// O(t * o * n log n) types by orderings by sort
+		boolean identical = true;
+		Path output = dir.resolve("ordered.txt");
+		for (var type : new TreeMap<>(TYPES).entrySet()) {// a loop
+			IndexSetup builder = type.getValue().get();
+			builder.setShowProgress(false);
+			builder.setTextFile(dir.resolve("text.txt").toString());
+			builder.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+			builder.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+			builder.setOutputFile(output.toString());
+			builder.setDisplayUniqueWordCount(true);
+			builder.buildIndex();
+			List<String> expected = sortedLines(references.get(type.getKey()));
+			for (IndexOrdering ordering : IndexOrdering.values()) {// a loop
+				long start = System.nanoTime();
+				builder.setOrdering(ordering);
+				builder.setParallelOutput(false);
+				builder.outputIndex();// O(n log n / p) method
+				byte[] sequential = Files.readAllBytes(output);
+				builder.setParallelOutput(true);
+				builder.outputIndex();// O(n log n / p) method
+				byte[] parallel = Files.readAllBytes(output);
+				long millis = (System.nanoTime() - start) / 1_000_000;
+
+				String result = "identical";
+				if (!Arrays.equals(sequential, parallel)) {
+					result = "PARALLEL DIFFERS at byte " + Arrays.mismatch(sequential, parallel);
+					identical = false;
+				} else if (!expected.equals(sortedLines(sequential))) {
+					result = "DIFFERS from the reference";
+					identical = false;
+				}
+				System.out.printf("%-10d %-18s %-18s %10d %10s %s%n", size, type.getKey(),
+						ordering.name().toLowerCase().replace("_alphabetical", "").replace('_', ' '), millis, "-", result);
+			}
+		}
+		return identical;
+	}
+
+	/*
+	 * Returns the lines of a written index in natural order, to compare indexes
+	 * written in different orderings.
+	 *
+	 * @param written: the bytes of the index
+	 */
+	private static List<String> sortedLines(byte[] written) {// O(l log l) where l is the amount of lines
+		return new String(written, StandardCharsets.UTF_8).lines().sorted().toList();
+	}
+
+	/*
+	 * Builds each index type with a subscriber that requests a few entries at a
+	 * time, then writes the entries it was sent and compares them with the
+	 * reference of its type.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 *
+	 * @param references: the reference output of each type
+	 */
+	private static boolean checkPublisher(Path dir, int size, Map<String, byte[]> references)
+			throws Exception {// O(t * n) types by build
+		boolean identical = true;
+		Path output = dir.resolve("published.txt");
+		for (var type : new TreeMap<>(TYPES).entrySet()) {// a loop
+			IndexSetup builder = type.getValue().get();
+			builder.setShowProgress(false);
+			builder.setTextFile(dir.resolve("text.txt").toString());
+			builder.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+			builder.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+			builder.setOutputFile(dir.resolve("index.txt").toString());
+			builder.setDisplayUniqueWordCount(true);
+			var received = new CompletableFuture<List<IndexItem>>();
+			builder.publisher().subscribe(new Flow.Subscriber<IndexItem>() {
+				private final List<IndexItem> items = new ArrayList<>();// items sent so far
+				private Flow.Subscription subscription;// the subscription, to request more
+
+				@Override
+				public void onSubscribe(Flow.Subscription subscription) {// O(1) one action
+					this.subscription = subscription;
+					subscription.request(64);
+				}
+
+				@Override
+				public void onNext(IndexItem item) {// O(1) amortised
+					items.add(item);
+					if (items.size() % 64 == 0)
+						subscription.request(64);
+				}
+
+				@Override
+				public void onError(Throwable e) {// O(1) one action
+					received.completeExceptionally(e);
+				}
+
+				@Override
+				public void onComplete() {// O(1) one action
+					received.complete(items);
+				}
+			});
+
+			long start = System.nanoTime();
+			builder.buildIndex();
+			List<IndexItem> items = received.get();
+			long millis = (System.nanoTime() - start) / 1_000_000;
+
+			String header = null;
+			List<Entry<String, WordDetail>> entries = new ArrayList<>();
+			for (IndexItem item : items) {// a loop
+				if (item instanceof IndexItem.Header h)
+					header = "Total Unique Words: " + h.uniqueWords() + "\n\n";
+				else if (item instanceof IndexItem.Word w)
+					entries.add(Map.entry(w.word(), w.detail()));
+			}
+			IndexWriter.write(entries, header, output.toString(), false);
+			byte[] expected = references.get(type.getKey());
+			byte[] written = Files.readAllBytes(output);
+			String result = entries.size() + " entries, ";
+			if (Arrays.equals(expected, written)) {
+				result += "identical";
+			} else {
+				result += "DIFFERS at byte " + Arrays.mismatch(expected, written);
+				identical = false;
+			}
+			System.out.printf("%-10d %-18s %-18s %10d %10s %s%n", size, type.getKey(), "published entries", millis,
+					"-", result);
+		}
+		return identical;
+	}
+
+	/*
+	 * Starts a build of each index type with checkpoints every quarter of the
+	 * text, cancels it once the first checkpoint is saved, then resumes it with a
+	 * new builder and compares the index with the reference of its type.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 *
+	 * @param references: the reference output of each type
+	 */
+	private static boolean checkResume(Path dir, int size, Map<String, byte[]> references)
+			throws Exception {// O(t * n) types by build
+		boolean identical = true;
+		Path checkpoint = dir.resolve("checkpoint.bin");
+		for (var type : new TreeMap<>(TYPES).entrySet()) {// a loop
+			List<IndexSetup> builders = new ArrayList<>();
+			for (int i = 0; i < 2; i++) {// a loop, the stopped build and the resumed one
+				IndexSetup builder = type.getValue().get();
+				builder.setShowProgress(false);
+				builder.setTextFile(dir.resolve("text.txt").toString());
+				builder.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+				builder.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+				builder.setOutputFile(dir.resolve("resumed.txt").toString());
+				builder.setDisplayUniqueWordCount(true);
+				builder.setCheckpoint(checkpoint.toString(), Math.max(1, size / 16));
+				builders.add(builder);
+			}
+			var build = builders.get(0).buildIndexAsync();
+			while (!Files.exists(checkpoint) && !build.isDone()) {// a loop
+				Thread.sleep(1);
+			}
+			build.cancel(true);
+			build.awaitStopped(Duration.ofMinutes(1));
+			int from = Files.exists(checkpoint) ? Checkpoint.load(checkpoint).lines() : 0;
+
+			System.gc();
+			resetPeakHeap();
+			long start = System.nanoTime();
+			builders.get(1).buildIndex();
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			long peak = peakHeap();
+
+			byte[] expected = references.get(type.getKey());
+			byte[] written = Files.readAllBytes(dir.resolve("resumed.txt"));
+			String result = "from line " + from + ", ";
+			if (Arrays.equals(expected, written)) {
+				result += "identical";
+			} else {
+				result += "DIFFERS at byte " + Arrays.mismatch(expected, written);
+				identical = false;
+			}
+			System.out.printf("%-10d %-18s %-18s %10d %10d %s%n", size, type.getKey(), "resumed checkpoint", millis,
+					peak / (1024 * 1024), result);
+		}
+		return identical;
+	}
+
+	/*
+	 * Builds a positional index and looks up the context of a sample of words, in
+	 * the text with \r\n line breaks and in a copy with \n. The context of each
+	 * occurrence must be the word on the page the index gives, with text either
+	 * side that is in the text.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 */
+	private static boolean checkConcordance(Path dir, int size) throws Exception {// O(n + s * m) build then lookups
+		Files.writeString(dir.resolve("text-lf.txt"), Files.readString(dir.resolve("text.txt")).replace("\r\n", "\n"));
+		boolean identical = true;
+		for (String name : new String[] { "text.txt", "text-lf.txt" }) {// a loop, each line break
+			IndexSetup builder = new IndexBuilder();
+			builder.setShowProgress(false);
+			builder.setTextFile(dir.resolve(name).toString());
+			builder.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+			builder.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+			builder.setPositional(true);
+			builder.createIndex();
+			String text = Files.readString(dir.resolve(name)).replace('\r', ' ').replace('\n', ' ');
+
+			List<String> words = new ArrayList<>(builder.getIndex().keySet());
+			int sampled = 0;
+			int occurrences = 0;
+			int wrong = 0;
+			long nanos = 0;
+			for (int i = 0; i < words.size(); i += Math.max(1, words.size() / 200)) {// a loop, about 200 words
+				String word = words.get(i);
+				long start = System.nanoTime();
+				var contexts = builder.concordance(word, 30);
+				nanos += System.nanoTime() - start;
+				List<Integer> pages = builder.getIndex().get(word).getPages();
+				for (int j = 0; j < contexts.size(); j++) {// a loop
+					var context = contexts.get(j);
+					if (!context.word().toLowerCase().replaceAll("[^a-z]", "").equals(word)
+							|| context.page() != pages.get(j)
+							|| (j < 5 && !text.contains(context.before() + context.word() + context.after())))
+						wrong++;
+				}
+				if (contexts.size() != pages.size())
+					wrong++;
+				sampled++;
+				occurrences += contexts.size();
+			}
+			String result = sampled + " words, " + occurrences + " occurrences, ";
+			result += wrong == 0 ? "identical" : wrong + " WRONG";
+			System.out.printf("%-10d %-18s %-18s %10d %10s %s%n", size, "index",
+					name.equals("text.txt") ? "concordance \\r\\n" : "concordance \\n", nanos / 1_000_000, "-",
+					result);
+			identical &= wrong == 0;
+		}
+		return identical;
+	}
+
+	/*
+	 * Makes a TermTrie of the words of an index and checks the words it completes
+	 * and the fuzzy matches of a sample of misspelt words against a search of
+	 * every word, the distance of each worked out in full. The heap taken by the
+	 * trie is reported beside the heap taken by the same words as the keys of a
+	 * skip list, as the index holds them.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 */
+	private static boolean checkTermTrie(Path dir, int size) throws Exception {// O(n + s * w * k^2) build then searches
+		IndexSetup builder = new IndexBuilder();
+		builder.setShowProgress(false);
+		builder.setTextFile(dir.resolve("text.txt").toString());
+		builder.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+		builder.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+		builder.createIndex();
+		List<String> words = new ArrayList<>(builder.getIndex().keySet());
+		long before = usedHeap();
+		var trie = TermTrie.of(builder);
+		long trieBytes = usedHeap() - before;
+		var keys = new ConcurrentSkipListSet<String>();
+		for (String word : words) {// a loop, copies so the keys of the index are not counted
+			keys.add(new String(word));
+		}
+		long keyBytes = usedHeap() - before - trieBytes;
+		keys.clear();
+
+		var random = new Random(SEED);
+		int sampled = 0;
+		int matches = 0;
+		int wrong = 0;
+		long nanos = 0;
+		for (int i = 0; i < words.size(); i += Math.max(1, words.size() / 50)) {// a loop, about 50 words
+			String word = words.get(i);
+			String misspelt = misspell(word, random);
+			String prefix = word.substring(0, Math.min(word.length(), 2));
+			List<String> completed = words.stream().filter(w -> w.startsWith(prefix)).limit(20).toList();
+			if (!trie.contains(word) || !trie.complete(prefix, 20).equals(completed))
+				wrong++;
+			for (int maxDistance = 1; maxDistance <= 2; maxDistance++) {// a loop
+				int most = maxDistance;
+				List<String> expected = words.stream().filter(w -> distance(misspelt, w) <= most)
+						.sorted(Comparator.comparingInt((String w) -> distance(misspelt, w))
+								.thenComparing(Comparator.naturalOrder()))
+						.toList();
+				long start = System.nanoTime();
+				List<String> found = trie.fuzzy(misspelt, maxDistance);
+				nanos += System.nanoTime() - start;
+				if (!found.equals(expected))
+					wrong++;
+				matches += expected.size();
+			}
+			sampled++;
+		}
+		String result = sampled + " words, " + matches + " fuzzy matches, " + trieBytes / 1024 + " KB against "
+				+ keyBytes / 1024 + " KB of skip list keys, ";
+		result += wrong == 0 ? "identical" : wrong + " WRONG";
+		System.out.printf("%-10d %-18s %-18s %10d %10s %s%n", size, "index", "term trie", nanos / 1_000_000, "-",
+				result);
+		return wrong == 0;
+	}
+
+	/*
+	 * Builds a positional index and runs boolean queries of each form on random
+	 * words, and phrases taken from the text, checking the pages of each against
+	 * those found by scanning the words of every line.
+	 *
+	 * @param dir: the directory of the corpus
+	 *
+	 * @param size: the number of lines, for the report
+	 */
+	private static boolean checkQueries(Path dir, int size) throws Exception {// O(n + q * n) build then scans
+		IndexSetup builder = new IndexBuilder();
+		builder.setShowProgress(false);
+		builder.setTextFile(dir.resolve("text.txt").toString());
+		builder.setDictionaryFile(dir.resolve("dictionary.csv").toString());
+		builder.setStopWordsFile(dir.resolve("stopwords.txt").toString());
+		builder.setPositional(true);
+		builder.createIndex();
+		var engine = new QueryEngine(builder);
+
+		// every word of the text in order, with its line, as the builders split them
+		List<String> lines = Files.readAllLines(dir.resolve("text.txt"));
+		Set<String> stopWords = IndexSetup.loadStopWords(dir.resolve("stopwords.txt").toString());
+		List<String> words = new ArrayList<>();
+		List<Integer> lineOf = new ArrayList<>();
+		Map<String, SortedSet<Integer>> pagesOf = new HashMap<>();
+		for (int line = 0; line < lines.size(); line++) {// a loop
+			for (String word : Tokenizer.REGEX.tokenize(lines.get(line))) {// a loop
+				if (word.isEmpty())
+					continue;
+				words.add(word);
+				lineOf.add(line);
+				if (!stopWords.contains(word))
+					pagesOf.computeIfAbsent(word, w -> new TreeSet<>()).add(line / 40 + 1);
+			}
+		}
+		SortedSet<Integer> universe = new TreeSet<>();
+		for (int page = 1; page <= (lines.size() + 39) / 40; page++) {// a loop
+			universe.add(page);
+		}
+		List<String> indexed = new ArrayList<>(new TreeSet<>(pagesOf.keySet()));
+
+		var random = new Random(SEED);
+		int queries = 0;
+		int matched = 0;
+		int wrong = 0;
+		long nanos = 0;
+		for (int i = 0; i < 60; i++) {// a loop, ten of each form
+			String a = indexed.get(random.nextInt(indexed.size()));
+			String b = indexed.get(random.nextInt(indexed.size()));
+			String c = indexed.get(random.nextInt(indexed.size()));
+			SortedSet<Integer> expected = new TreeSet<>(pagesOf.get(a));
+			String query = switch (i % 6) {
+			case 0 -> {
+				expected.retainAll(pagesOf.get(b));
+				yield a + " AND " + b;
+			}
+			case 1 -> {
+				expected.addAll(pagesOf.get(b));
+				yield a + " OR " + b;
+			}
+			case 2 -> {
+				expected.removeAll(pagesOf.get(b));
+				yield a + " NOT " + b;
+			}
+			case 3 -> {
+				expected = new TreeSet<>(universe);
+				expected.removeAll(pagesOf.get(a));
+				yield "NOT " + a;
+			}
+			case 4 -> {
+				expected.addAll(pagesOf.get(b));
+				expected.retainAll(pagesOf.get(c));
+				yield "(" + a + " OR " + b + ") " + c;
+			}
+			default -> {
+				SortedSet<Integer> without = new TreeSet<>(pagesOf.get(b));
+				without.removeAll(pagesOf.get(c));
+				expected.addAll(without);
+				yield a + " OR " + b + " NOT " + c;
+			}
+			};
+			long start = System.nanoTime();
+			int[] found = engine.query(query);
+			nanos += System.nanoTime() - start;
+			if (!Arrays.equals(found, expected.stream().mapToInt(Integer::intValue).toArray()))
+				wrong++;
+			queries++;
+		}
+
+		for (int i = 0; i < 30; i++) {// a loop, phrases of two to four words
+			int length = 2 + i % 3;
+			int first = random.nextInt(Math.max(1, words.size() - length));
+			for (int tries = 0; tries < 1000 && !indexedRun(words, first, length, pagesOf); tries++) {// a loop
+				first = random.nextInt(Math.max(1, words.size() - length));// mostly phrases with no stop words
+			}
+			String phrase = String.join(" ", words.subList(first, Math.min(words.size(), first + length)));
+			String[] parts = phrase.split(" ");
+			SortedSet<Integer> expected = new TreeSet<>();
+			for (int j = 0; j + parts.length <= words.size(); j++) {// a loop, a scan of the text
+				boolean match = true;
+				for (int k = 0; k < parts.length && match; k++) {// a loop
+					match = pagesOf.containsKey(parts[k]) && words.get(j + k).equals(parts[k])
+							&& (k == 0 || lineOf.get(j + k) - lineOf.get(j + k - 1) <= 1);
+				}
+				if (match)
+					expected.add(lineOf.get(j) / 40 + 1);
+			}
+			long start = System.nanoTime();
+			String written = i % 2 == 0 ? phrase.replace('k', '\u212A') : phrase;// the Kelvin sign lower cases to k
+			int[] found = engine.query("\"" + written + "\"");
+			nanos += System.nanoTime() - start;
+			if (!Arrays.equals(found, expected.stream().mapToInt(Integer::intValue).toArray()))
+				wrong++;
+			if (!expected.isEmpty())
+				matched++;
+			queries++;
+		}
+		String result = queries + " queries, " + matched + " phrases found, ";
+		result += wrong == 0 ? "identical" : wrong + " WRONG";
+		System.out.printf("%-10d %-18s %-18s %10d %10s %s%n", size, "index", "queries", nanos / 1_000_000,
+				"-", result);
+		return wrong == 0;
+	}
+
+	/*
+	 * Returns true if every word of a run of the words of the text is indexed.
+	 *
+	 * @param words: the words of the text in order
+	 *
+	 * @param first: the first word of the run
+	 *
+	 * @param length: the number of words in the run
+	 *
+	 * @param pagesOf: the pages of each indexed word
+	 */
+	private static boolean indexedRun(List<String> words, int first, int length,
+			Map<String, SortedSet<Integer>> pagesOf) {// O(l) where l is the length of the run
+		for (int k = first; k < Math.min(words.size(), first + length); k++) {// a loop
+			if (!pagesOf.containsKey(words.get(k)))
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Makes one random edit to a word: a character inserted, deleted or replaced.
+	 *
+	 * @param word: the word
+	 *
+	 * @param random: the source of the edit
+	 */
+	private static String misspell(String word, Random random) {// O(k) where k is the length of the word
+		var sb = new StringBuilder(word);
+		int at = random.nextInt(word.length() + 1);
+		char letter = (char) ('a' + random.nextInt(26));
+		switch (random.nextInt(3)) {
+		case 0 -> sb.insert(at, letter);
+		case 1 -> sb.deleteCharAt(Math.min(at, sb.length() - 1));
+		default -> sb.setCharAt(Math.min(at, sb.length() - 1), letter);
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Works out the Levenshtein distance of two words with the full table, the
+	 * reference the trie is checked against.
+	 *
+	 * @param a: the first word
+	 *
+	 * @param b: the second word
+	 */
+	private static int distance(String a, String b) {// O(k * l) where k and l are the lengths of the words
+		int[][] table = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {// a loop
+			for (int j = 0; j <= b.length(); j++) {// a loop
+				if (i == 0 || j == 0)
+					table[i][j] = i + j;
+				else
+					table[i][j] = Math.min(Math.min(table[i - 1][j] + 1, table[i][j - 1] + 1),
+							table[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+			}
+		}
+		return table[a.length()][b.length()];
+	}
+
+	/*
+	 * Generates the text, dictionary and stop words of a size, and gzip copies of
+	 * the text and dictionary.
+	 *
+	 * @param dir: the directory to write to
+	 *
+	 * @param lines: the number of lines of text
+	 */
+	private static void generate(Path dir, int lines) throws Exception {// O(n) where n is the amount of lines
+		var generator = new CorpusGenerator(SEED);
+		generator.setVocabularySize(Math.max(1_000, lines / 2));
+		generator.setLineBreak("\r\n");
+		generator.writeText(dir.resolve("text.txt").toString(), lines);
+		generator.writeDictionary(dir.resolve("dictionary.csv").toString());
+		generator.writeStopWords(dir.resolve("stopwords.txt").toString(), 1_000);
+		for (String name : new String[] { "text.txt", "dictionary.csv" }) {// a loop
+			try (var out = Compression.output(dir.resolve(name + ".gz").toString())) {
+				Files.copy(dir.resolve(name), out);
+			}
+		}
+	}
+
+	/*
+	 * Resets the peak usage of every heap memory pool.
+	 */
+	private static void resetPeakHeap() {// O(p) where p is the amount of pools
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {// a loop
+			if (pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+		}
+	}
+
+	/*
+	 * Returns the heap in use once garbage is collected.
+	 */
+	private static long usedHeap() {// O(h) where h is the size of the heap, a full collection
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/*
+	 * Returns the sum of the peak usage of every heap memory pool since the last
+	 * reset.
+	 */
+	private static long peakHeap() {// O(p) where p is the amount of pools
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {// a loop
+			if (pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+}
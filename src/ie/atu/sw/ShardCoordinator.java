@@ -0,0 +1,392 @@
+package ie.atu.sw;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
+
+/**
+ * The class ShardCoordinator builds one index with several worker processes.
+ * The text is split into ranges of whole pages, each range is indexed by a
+ * ShardWorker in its own JVM, so each has its own heap and garbage collector,
+ * and written as a sorted segment with its global page numbers. The segments
+ * are then merged k ways, one entry of each at a time, into the output file.
+ *
+ * The output is the same as that of the single process builder of the same
+ * type with the same number of lines per page. Only a fixed number of lines
+ * per page is supported, as other page models depend on the text before each
+ * range.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see ShardWorker
+ * @see IndexSegment
+ */
+public class ShardCoordinator {
+	private String textFile;// text to index, may be compressed
+	private String dictionaryFile;// dictionary passed to every worker
+	private String stopWordsFile;// stop words passed to every worker
+	private String outputFile;// merged index written here
+	private boolean stopWordsIndex;// true for the stop words index, false for the index without them
+	private int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);// worker processes
+	private int linesPerPage = 40;// lines on every page
+	private boolean displayUniqueWordCount;// true to write the unique word count first
+	private boolean removeNullDefinition;// true to leave out words without a definition
+	private ExecutionStrategy workerStrategy = ExecutionStrategy.VIRTUAL_THREADS;// strategy within each worker
+	private List<String> jvmOptions = List.of();// options of every worker JVM, e.g. -Xmx
+
+	/*
+	 * One range of the text and the global number of its first page.
+	 */
+	private record Shard(Path text, long firstPage) {
+	}
+
+	/**
+	 * Constructor of the ShardCoordinator class, half the processors are used as
+	 * workers unless set.
+	 */
+	public ShardCoordinator() {
+		super();
+	}
+
+	/**
+	 * Builds the index with the worker processes and writes it to the output file.
+	 * All file locations should be set before use.
+	 *
+	 * @return int number of shards built
+	 * @throws IndexingException     if a file cannot be read or written or a
+	 *                               worker fails
+	 * @throws CancellationException if the thread is interrupted, the workers are
+	 *                               stopped
+	 */
+	public int build() {// O(n / w) where w is the amount of workers, O(n log w) to merge
+		Path dir = null;
+		try {
+			dir = Files.createTempDirectory("shards-");
+			List<Shard> shards = split(dir);// O(n) method
+			List<Path> segments = runWorkers(shards);// O(n / w) method
+			String header = null;
+			if (displayUniqueWordCount) {
+				header = "Total Unique Words: " + uniqueWordCount(segments) + "\n\n";// O(n log w) method
+			}
+			try (var merge = new Merge(segments)) {
+				IndexWriter.write(merge, header, outputFile);// O(n log w) method
+			}
+			return shards.size();
+		} catch (UncheckedIOException e) {
+			throw new IndexingException("Cannot read a segment of " + textFile, e.getCause());
+		} catch (IOException e) {
+			throw new IndexingException("Cannot build the shards of " + textFile + " to " + outputFile, e);
+		} finally {
+			deleteQuietly(dir);
+		}
+	}
+
+	/*
+	 * Splits the text into shard files of whole pages, as near equal in size as
+	 * the pages allow. The lines are counted first so every shard can be sized.
+	 *
+	 * @param dir: the directory of the shards
+	 */
+	private List<Shard> split(Path dir) throws IOException {// O(n) two passes over the lines
+		long lines;
+		try (Stream<String> text = Compression.lines(textFile)) {
+			lines = text.count();// O(n)
+		}
+		long pages = (lines + linesPerPage - 1) / linesPerPage;
+		long pagesPerShard = Math.max(1, (pages + workers - 1) / workers);
+		long linesPerShard = pagesPerShard * linesPerPage;
+
+		List<Shard> shards = new ArrayList<>();
+		try (Stream<String> text = Compression.lines(textFile)) {
+			var it = text.iterator();
+			do {// a loop, at least one shard for an empty text
+				Path shard = dir.resolve("shard-" + shards.size() + ".txt");
+				try (BufferedWriter bw = Files.newBufferedWriter(shard, StandardCharsets.UTF_8)) {
+					for (long i = 0; i < linesPerShard && it.hasNext(); i++) {// a loop
+						bw.write(it.next());
+						bw.write('\n');
+					}
+				}
+				shards.add(new Shard(shard, shards.size() * pagesPerShard + 1));
+			} while (it.hasNext());
+		}
+		return shards;
+	}
+
+	/*
+	 * Starts a worker process for every shard and waits for all of them. If one
+	 * fails, or the thread is interrupted, the rest are stopped.
+	 *
+	 * @param shards: the shards in the order of the text
+	 */
+	private List<Path> runWorkers(List<Shard> shards) throws IOException {// O(n / w) the workers run at once
+		String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+		List<Path> segments = new ArrayList<>();
+		List<Process> processes = new ArrayList<>();
+		try {
+			for (int i = 0; i < shards.size(); i++) {// a loop
+				Shard shard = shards.get(i);
+				Path segment = shard.text().resolveSibling("segment-" + i + ".idx");
+				List<String> command = new ArrayList<>();
+				command.add(java);
+				command.addAll(jvmOptions);
+				command.addAll(List.of("-cp", System.getProperty("java.class.path"), ShardWorker.class.getName(),
+						stopWordsIndex ? "2" : "1", shard.text().toString(), dictionaryFile, stopWordsFile,
+						segment.toString(), Long.toString(shard.firstPage()), Integer.toString(linesPerPage),
+						Boolean.toString(removeNullDefinition), workerStrategy.name()));
+				processes.add(new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+						.redirectError(ProcessBuilder.Redirect.INHERIT).start());
+				segments.add(segment);
+			}
+			for (int i = 0; i < processes.size(); i++) {// a loop
+				int status = processes.get(i).waitFor();
+				if (status != 0)
+					throw new IndexingException("Shard worker " + i + " failed with exit status " + status);
+			}
+			processes.clear();
+			return segments;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("build stopped");
+		} finally {
+			for (Process process : processes) {// a loop, none left if all succeeded
+				process.destroyForcibly();
+			}
+		}
+	}
+
+	/*
+	 * Counts the words of the merged index found on one page only, by merging the
+	 * segments without writing them.
+	 *
+	 * @param segments: the segment files in the order of the text
+	 */
+	private static int uniqueWordCount(List<Path> segments) throws IOException {// O(n log w) due to loop
+		int counter = 0;
+		try (var merge = new Merge(segments)) {
+			while (merge.hasNext()) {// a loop
+				if (merge.next().getValue().isUnique())
+					counter++;
+			}
+		}
+		return counter;
+	}
+
+	/*
+	 * Deletes the shards directory and every file in it.
+	 *
+	 * @param dir: the directory, may be null
+	 */
+	private static void deleteQuietly(Path dir) {// O(s) where s is the amount of files
+		if (dir == null)
+			return;
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : files.toList()) {// a loop
+				Files.deleteIfExists(file);
+			}
+			Files.deleteIfExists(dir);
+		} catch (IOException e) {
+			dir.toFile().deleteOnExit();// try again on exit
+		}
+	}
+
+	/*
+	 * A k way merge of segments in natural order. The head entry of every segment
+	 * is kept in a priority queue ordered by word then by segment, so the pages of
+	 * a word found in several segments are joined in the order of the text.
+	 */
+	private static class Merge implements Iterator<Entry<String, WordDetail>>, Closeable {
+		private final List<IndexSegment.Reader> readers = new ArrayList<>();// one per segment
+		private final PriorityQueue<Cursor> heads = new PriorityQueue<>(
+				Comparator.comparing((Cursor c) -> c.entry().getKey()).thenComparingInt(Cursor::segment));// next of each
+
+		/*
+		 * The next entry of one segment.
+		 */
+		private record Cursor(int segment, Entry<String, WordDetail> entry) {
+		}
+
+		/*
+		 * Opens every segment and reads its first entry.
+		 *
+		 * @param segments: the segment files in the order of the text
+		 */
+		private Merge(List<Path> segments) throws IOException {// O(w log w) due to loop
+			try {
+				for (Path segment : segments) {// a loop
+					var reader = IndexSegment.open(segment);
+					readers.add(reader);
+					advance(readers.size() - 1);
+				}
+			} catch (IOException | UncheckedIOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {// O(1) one action
+			return !heads.isEmpty();
+		}
+
+		@Override
+		public Entry<String, WordDetail> next() {// O(k log w) where k is the amount of segments with the word
+			if (heads.isEmpty())
+				throw new NoSuchElementException();
+			String word = heads.peek().entry().getKey();
+			WordDetail merged = new WordDetail(word);
+			while (!heads.isEmpty() && heads.peek().entry().getKey().equals(word)) {// a loop
+				Cursor head = heads.poll();// O(log w)
+				WordDetail part = head.entry().getValue();
+				if (merged.getDefinition() == null)
+					merged.setDefinition(part.getDefinition());
+				for (int page : part.getPages()) {// a loop
+					merged.addPage(page);
+				}
+				if (part.getPositions() != null) {
+					for (long position : part.getPositions().toArray()) {// a loop
+						merged.addPosition(PositionList.line(position), PositionList.offset(position));
+					}
+				}
+				advance(head.segment());// O(log w)
+			}
+			return Map.entry(word, merged);
+		}
+
+		/*
+		 * Reads the next entry of a segment into the queue, if it has one.
+		 *
+		 * @param segment: the index of the segment
+		 */
+		private void advance(int segment) {// O(log w) queue insert
+			var reader = readers.get(segment);
+			if (reader.hasNext())
+				heads.add(new Cursor(segment, reader.next()));
+		}
+
+		@Override
+		public void close() throws IOException {// O(w) due to loop
+			IOException failure = null;
+			for (var reader : readers) {// a loop
+				try {
+					reader.close();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			if (failure != null)
+				throw failure;
+		}
+	}
+
+	/**
+	 * Sets the text file location, it may be compressed.
+	 *
+	 * @param textFile String for file location
+	 */
+	public void setTextFile(String textFile) {// O(1) one action - set
+		this.textFile = textFile;
+	}
+
+	/**
+	 * Sets the dictionary file location.
+	 *
+	 * @param dictionaryFile String for file location
+	 */
+	public void setDictionaryFile(String dictionaryFile) {// O(1) one action - set
+		this.dictionaryFile = dictionaryFile;
+	}
+
+	/**
+	 * Sets the stop words file location.
+	 *
+	 * @param stopWordsFile String for file location
+	 */
+	public void setStopWordsFile(String stopWordsFile) {// O(1) one action - set
+		this.stopWordsFile = stopWordsFile;
+	}
+
+	/**
+	 * Sets the output file location, named for compression to compress it.
+	 *
+	 * @param outputFile String for file location
+	 */
+	public void setOutputFile(String outputFile) {// O(1) one action - set
+		this.outputFile = outputFile;
+	}
+
+	/**
+	 * Sets which index is built: <b>true</b> for the index of stop words, as
+	 * AlternateIndexBuilder, <b>false</b> for the index without them, as
+	 * IndexBuilder. The default is false.
+	 *
+	 * @param stopWordsIndex true for the stop words index
+	 */
+	public void setStopWordsIndex(boolean stopWordsIndex) {// O(1) one action - set
+		this.stopWordsIndex = stopWordsIndex;
+	}
+
+	/**
+	 * Sets the most worker processes, fewer are used if the text has fewer pages.
+	 *
+	 * @param workers int number of workers, at least 1
+	 */
+	public void setWorkers(int workers) {// O(1) one action - set
+		this.workers = Math.max(1, workers);
+	}
+
+	/**
+	 * Sets the number of lines on every page, 40 unless set.
+	 *
+	 * @param linesPerPage int number of lines
+	 * @throws IllegalArgumentException if linesPerPage is less than 1
+	 */
+	public void setLinesPerPage(int linesPerPage) {// O(1) one action - set
+		if (linesPerPage < 1)
+			throw new IllegalArgumentException("linesPerPage must be at least 1");
+		this.linesPerPage = linesPerPage;
+	}
+
+	/**
+	 * Sets whether the count of unique words is written before the index.
+	 *
+	 * @param displayUniqueWordCount true to write the count
+	 */
+	public void setDisplayUniqueWordCount(boolean displayUniqueWordCount) {// O(1) one action - set
+		this.displayUniqueWordCount = displayUniqueWordCount;
+	}
+
+	/**
+	 * Sets whether words without a definition are left out of the index.
+	 *
+	 * @param removeNullDefinition true to leave them out
+	 */
+	public void setRemoveNullDefinition(boolean removeNullDefinition) {// O(1) one action - set
+		this.removeNullDefinition = removeNullDefinition;
+	}
+
+	/**
+	 * Sets the execution strategy used within each worker.
+	 *
+	 * @param workerStrategy the execution strategy
+	 */
+	public void setWorkerStrategy(ExecutionStrategy workerStrategy) {// O(1) one action - set
+		this.workerStrategy = Objects.requireNonNull(workerStrategy);
+	}
+
+	/**
+	 * Sets the options of every worker JVM, for example the heap size.
+	 *
+	 * @param jvmOptions the options, e.g. <code>-Xmx512m</code>
+	 */
+	public void setJvmOptions(List<String> jvmOptions) {// O(n) copy of the options
+		this.jvmOptions = List.copyOf(jvmOptions);
+	}
+}
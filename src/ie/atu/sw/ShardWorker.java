@@ -0,0 +1,61 @@
+package ie.atu.sw;
+
+import java.nio.file.Path;
+
+/**
+ * The class ShardWorker is run in its own JVM by the ShardCoordinator. It
+ * builds the index of one range of the text with the existing builders and
+ * writes it as a segment, its pages numbered from the first page of the range.
+ *
+ * <code>java ie.atu.sw.ShardWorker &lt;type 1|2&gt; &lt;text&gt; &lt;dictionary&gt;
+ * &lt;stop words&gt; &lt;segment&gt; &lt;first page&gt; &lt;lines per page&gt;
+ * &lt;remove null definitions&gt; &lt;execution strategy&gt;</code>, type 1
+ * being the index that excludes stop words and 2 the stop words index. Exits
+ * with status 1 if the index cannot be built.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see ShardCoordinator
+ * @see IndexSegment
+ */
+public class ShardWorker {
+
+	/*
+	 * Private constructor, the class is run from its main method only.
+	 */
+	private ShardWorker() {
+		super();
+	}
+
+	/**
+	 * Builds the segment of a range of the text.
+	 *
+	 * @param args the arguments described above
+	 */
+	public static void main(String[] args) {// O(n) where n is the amount of lines in the range
+		if (args.length != 9) {
+			System.err.println("[ERROR] Expected 9 arguments, got " + args.length);
+			System.exit(2);
+		}
+		IndexSetup builder = args[0].equals("2") ? new AlternateIndexBuilder() : new IndexBuilder();
+		builder.setShowProgress(false);
+		builder.setTextFile(args[1]);
+		builder.setDictionaryFile(args[2]);
+		builder.setStopWordsFile(args[3]);
+		int firstPage = Integer.parseInt(args[5]);
+		int linesPerPage = Integer.parseInt(args[6]);
+		builder.setPageModel(PageModel.linesPerPage(linesPerPage));
+		builder.setRemoveNullDefinition(Boolean.parseBoolean(args[7]));
+		builder.setExecutionStrategy(ExecutionStrategy.valueOf(args[8]));
+		try {
+			builder.createIndex();// O(n) method
+			IndexSegment.write(Path.of(args[4]), builder.getIndex(), firstPage - 1,
+					(firstPage - 1) * linesPerPage);// O(n) method
+		} catch (Exception e) {
+			System.err.println("[ERROR] Shard " + args[1] + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
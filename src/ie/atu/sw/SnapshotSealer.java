@@ -0,0 +1,197 @@
+package ie.atu.sw;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * The class SnapshotSealer publishes IndexSnapshots of a build as it parses.
+ * The build thread appends each occurrence to a buffer, and every interval of
+ * lines hands the buffer over to be sealed. Sealing runs on a virtual thread of
+ * its own, so parsing carries on at once: the occurrences are grouped by word
+ * into a segment, leaving out words the builder does not index, the last two
+ * segments are merged while the newer covers as many lines as the older,
+ * keeping a logarithmic number of segments, and a snapshot of the next epoch
+ * is published. The complete snapshot can leave out words the builder removes
+ * once the text is parsed.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSnapshot
+ * @see IndexSetup#setSnapshots(int)
+ */
+public class SnapshotSealer implements AutoCloseable {
+	private final int interval;// lines parsed between snapshots
+	private final AtomicReference<IndexSnapshot> published;// the latest snapshot
+	private final Predicate<String> indexed;// true for the words the builder indexes
+	private final ExecutorService sealing = Executors
+			.newSingleThreadExecutor(Thread.ofVirtual().name("snapshot-sealer").factory());// seals in order
+	private final List<IndexSnapshot.Segment> segments = new ArrayList<>();// sealed so far, sealing thread only
+	private String[] words = new String[1024];// word of each occurrence since the last seal
+	private int[] pages = new int[1024];// page of each occurrence since the last seal
+	private int size;// occurrences since the last seal
+	private int sealedLines;// lines covered by the last seal
+	private long epoch;// epoch of the last snapshot, sealing thread only
+
+	/**
+	 * Constructor of the SnapshotSealer class, publishes an empty snapshot.
+	 *
+	 * @param interval  the lines parsed between snapshots, at least 1
+	 * @param published where each snapshot is published
+	 * @param indexed   true for the words the builder indexes, tested on the
+	 *                  sealing thread once for each word of a segment
+	 */
+	public SnapshotSealer(int interval, AtomicReference<IndexSnapshot> published,
+			Predicate<String> indexed) {// O(1) three actions
+		this.interval = interval;
+		this.published = published;
+		this.indexed = indexed;
+		published.set(IndexSnapshot.EMPTY);
+	}
+
+	/**
+	 * Records an occurrence of a word. Called by the build thread only.
+	 *
+	 * @param word the word
+	 * @param page the page it is on
+	 */
+	public void add(String word, int page) {// O(1) amortised, arrays double when full
+		if (size == words.length) {
+			words = Arrays.copyOf(words, size * 2);
+			pages = Arrays.copyOf(pages, size * 2);
+		}
+		words[size] = word;
+		pages[size++] = page;
+	}
+
+	/**
+	 * Seals the occurrences so far if an interval of lines has passed since the
+	 * last seal. Called by the build thread after whole lines only.
+	 *
+	 * @param lines the lines parsed so far
+	 */
+	public void linesParsed(int lines) {// O(1) hands over the buffer
+		if (lines - sealedLines >= interval)
+			seal(lines, false);
+	}
+
+	/**
+	 * Hands the occurrences so far over to be sealed into the next snapshot.
+	 * Called by the build thread only.
+	 *
+	 * @param lines    the lines parsed so far
+	 * @param complete true if the whole text has been parsed
+	 */
+	public void seal(int lines, boolean complete) {// O(1) hands over the buffer
+		seal(lines, complete, null);
+	}
+
+	/**
+	 * Hands the last occurrences over to be sealed into the complete snapshot,
+	 * leaving out of every segment the words that are not kept, such as the words
+	 * with no definition when the builder removes them. Called by the build thread
+	 * only.
+	 *
+	 * @param lines the lines of the text
+	 * @param kept  true for the words the index keeps, tested on the sealing
+	 *              thread once for each word of each segment
+	 */
+	public void seal(int lines, Predicate<String> kept) {// O(1) hands over the buffer
+		seal(lines, true, kept);
+	}
+
+	/*
+	 * Hands the occurrences so far over to be sealed.
+	 *
+	 * @param lines: the lines parsed so far
+	 *
+	 * @param complete: true if the whole text has been parsed
+	 *
+	 * @param kept: true for the words kept in every segment, null to keep them all
+	 */
+	private void seal(int lines, boolean complete, Predicate<String> kept) {// O(1) hands over the buffer
+		String[] sealedWords = words;
+		int[] sealedPages = pages;
+		int sealedSize = size;
+		words = new String[Math.max(1024, sealedSize)];
+		pages = new int[words.length];
+		size = 0;
+		int covered = lines - sealedLines;
+		sealedLines = lines;
+		sealing.execute(
+				() -> publish(segmentOf(sealedWords, sealedPages, sealedSize, covered), lines, complete, kept));
+	}
+
+	/**
+	 * Waits for every snapshot handed over to be published.
+	 */
+	@Override
+	public void close() {// O(s) waits for the sealing thread
+		sealing.close();
+	}
+
+	/*
+	 * Adds a segment, merges the last segments while they are of similar size,
+	 * then publishes a snapshot of the next epoch. Run on the sealing thread.
+	 *
+	 * @param segment: the segment of the lines since the last seal
+	 *
+	 * @param lines: the lines covered
+	 *
+	 * @param complete: true if the whole text is covered
+	 *
+	 * @param kept: true for the words kept in every segment, null to keep them all
+	 */
+	private void publish(IndexSnapshot.Segment segment, int lines, boolean complete,
+			Predicate<String> kept) {// O(w log s) amortised merges
+		if (segment.lines() > 0)
+			segments.add(segment);
+		int last = segments.size() - 1;
+		while (last > 0 && segments.get(last).lines() >= segments.get(last - 1).lines()) {// a loop
+			segments.set(last - 1, IndexSnapshot.Segment.merge(segments.get(last - 1), segments.remove(last)));
+			last--;
+		}
+		if (kept != null)
+			segments.replaceAll(s -> s.retain(kept));// O(w) method
+		published.set(new IndexSnapshot(++epoch, lines, complete, segments));
+	}
+
+	/*
+	 * Groups occurrences by word into a segment, keeping the pages of each word in
+	 * the order they occurred.
+	 *
+	 * @param words: the word of each occurrence
+	 *
+	 * @param pages: the page of each occurrence
+	 *
+	 * @param size: the number of occurrences
+	 *
+	 * @param lines: the number of lines they occurred in
+	 */
+	private IndexSnapshot.Segment segmentOf(String[] words, int[] pages, int size, int lines) {// O(k + w log w)
+		Map<String, int[]> counts = new HashMap<>();// count of each word, then its index in the segment
+		for (int i = 0; i < size; i++) {// a loop
+			counts.computeIfAbsent(words[i], w -> new int[2])[0]++;// O(1)
+		}
+		counts.keySet().removeIf(indexed.negate());// O(w)
+		String[] sorted = counts.keySet().toArray(String[]::new);
+		Arrays.sort(sorted);// O(w log w)
+		int[][] grouped = new int[sorted.length][];
+		for (int i = 0; i < sorted.length; i++) {// a loop
+			int[] count = counts.get(sorted[i]);
+			grouped[i] = new int[count[0]];
+			count[1] = i;
+		}
+		int[] filled = new int[sorted.length];
+		for (int i = 0; i < size; i++) {// a loop
+			int[] count = counts.get(words[i]);// O(1)
+			if (count != null)
+				grouped[count[1]][filled[count[1]]++] = pages[i];
+		}
+		return new IndexSnapshot.Segment(sorted, grouped, lines);
+	}
+}
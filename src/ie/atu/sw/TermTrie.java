@@ -0,0 +1,309 @@
+package ie.atu.sw;
+
+import java.util.*;
+
+/**
+ * The class TermTrie is a compressed trie, or radix tree, of the words of an
+ * index for prefix completion and fuzzy lookup. A chain of nodes with one child
+ * each is held as one node whose edge is labelled with the chain's characters,
+ * so there is a node only where words branch or end. The labels are ranges of
+ * one shared char array and the nodes are held in primitive arrays in breadth
+ * first order, the children of a node being next to each other and sorted by
+ * the first character of their label, so a child is found by binary search. A
+ * node costs 10 bytes plus a bit and each character of a label 2 bytes, words
+ * are not held as Strings but rebuilt from their path.
+ *
+ * Fuzzy lookup walks the trie keeping one row of the Levenshtein distance table
+ * per character of a label, a branch is left as soon as every value in its row
+ * is over the distance allowed. Words sharing a prefix share the work of that
+ * prefix.
+ *
+ * The trie is a copy of the words at the time it is built and does not change
+ * with the index.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup
+ */
+public class TermTrie {
+	private char[] labels;// characters of every edge label, node by node
+	private int[] labelEnd;// end of the label of each node in labels, the label starting at the end of the last
+	private int[] firstChild;// node number of the first child of each node
+	private char[] childCount;// number of children of each node
+	private BitSet terminal = new BitSet();// nodes that end a word
+	private int nodes;// number of nodes
+	private int words;// number of words
+
+	/**
+	 * Creates a trie of the words in a built index.
+	 *
+	 * @param indexer the built index
+	 * @return TermTrie of the words
+	 */
+	public static TermTrie of(IndexSetup indexer) {// O(n) where n is the total length of the words
+		return new TermTrie(indexer.getIndex().keySet());
+	}
+
+	/**
+	 * Constructor of the TermTrie class, builds a trie of the words given. Words are
+	 * case insensitive and may be given in any order.
+	 *
+	 * @param words the words of the trie
+	 */
+	public TermTrie(Collection<String> words) {// O(n log n) sort, O(n) where n is total length when sorted
+		String[] keys = words.stream().map(String::toLowerCase).distinct().sorted().toArray(String[]::new);
+		int capacity = 1;
+		for (String key : keys) {// a loop
+			capacity += key.length();
+		}
+		int nodeCapacity = Math.min(capacity, 2 * keys.length + 1);// a node branches or ends a word
+		labels = new char[capacity];
+		labelEnd = new int[nodeCapacity];
+		firstChild = new int[nodeCapacity];
+		childCount = new char[nodeCapacity];
+		int[] low = new int[nodeCapacity];// first word under each node, only needed while building
+		int[] high = new int[nodeCapacity];// end of the words under each node
+		int[] depth = new int[nodeCapacity];// length of the prefix of each node
+
+		low[0] = 0;
+		high[0] = keys.length;
+		nodes = 1;
+		for (int node = 0; node < nodes; node++) {// a loop, nodes are added as they are expanded
+			int lo = low[node];
+			int hi = high[node];
+			int d = depth[node];
+			if (lo < hi && keys[lo].length() == d) {// sorted, so the word equal to the prefix comes first
+				terminal.set(node);
+				this.words++;
+				lo++;
+			}
+			firstChild[node] = nodes;
+			while (lo < hi) {// a loop, one child per character at this depth
+				char c = keys[lo].charAt(d);
+				int end = lo + 1;
+				while (end < hi && keys[end].charAt(d) == c) {// a loop
+					end++;
+				}
+				int shared = d + 1;// the words of the child share the prefix of the first and the last
+				while (shared < keys[lo].length() && keys[lo].charAt(shared) == keys[end - 1].charAt(shared)) {// a loop
+					shared++;
+				}
+				int from = labelEnd[nodes - 1];
+				keys[lo].getChars(d, shared, labels, from);
+				labelEnd[nodes] = from + shared - d;
+				low[nodes] = lo;
+				high[nodes] = end;
+				depth[nodes] = shared;
+				nodes++;
+				lo = end;
+			}
+			childCount[node] = (char) (nodes - firstChild[node]);
+		}
+		labels = Arrays.copyOf(labels, labelEnd[nodes - 1]);
+		labelEnd = Arrays.copyOf(labelEnd, nodes);
+		firstChild = Arrays.copyOf(firstChild, nodes);
+		childCount = Arrays.copyOf(childCount, nodes);
+	}
+
+	/**
+	 * Gets the number of words in the trie.
+	 *
+	 * @return int number of words
+	 */
+	public int size() {// O(1) one action only
+		return words;
+	}
+
+	/**
+	 * Gets the approximate number of bytes held by the trie's arrays.
+	 *
+	 * @return long number of bytes
+	 */
+	public long byteSize() {// O(1) sum of array sizes
+		return (long) nodes * (Integer.BYTES + Integer.BYTES + Character.BYTES) + (long) labels.length * Character.BYTES
+				+ terminal.size() / 8;
+	}
+
+	/**
+	 * Checks if a word is in the trie.
+	 *
+	 * @param word the word, case insensitive
+	 * @return true if the word is in the trie
+	 */
+	public boolean contains(String word) {// O(k log a) where k is the word length and a the alphabet
+		word = word.toLowerCase();
+		var reached = new StringBuilder();
+		int node = find(word, reached);
+		return node >= 0 && terminal.get(node) && reached.length() == word.length();
+	}
+
+	/**
+	 * Returns words starting with a prefix in alphabetical order.
+	 *
+	 * @param prefix the prefix, case insensitive
+	 * @param limit  the most words to return
+	 * @return List of words
+	 */
+	public List<String> complete(String prefix, int limit) {// O(k log a + r) where r is the size of the result
+		List<String> result = new ArrayList<>();
+		var reached = new StringBuilder();
+		int node = find(prefix.toLowerCase(), reached);
+		if (node >= 0 && limit > 0) {
+			collect(node, reached, result, limit);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns words within a Levenshtein edit distance of a word, closest first
+	 * then alphabetical. An edit is one character inserted, deleted or replaced.
+	 *
+	 * @param word        the word, case insensitive
+	 * @param maxDistance the most edits allowed
+	 * @return List of words
+	 */
+	public List<String> fuzzy(String word, int maxDistance) {// O(k * v) where v is the amount of characters visited
+		word = word.toLowerCase();
+		List<List<String>> byDistance = new ArrayList<>();
+		for (int i = 0; i <= maxDistance; i++) {// a loop
+			byDistance.add(new ArrayList<>());
+		}
+		int[] row = new int[word.length() + 1];
+		for (int i = 0; i < row.length; i++) {// a loop
+			row[i] = i;
+		}
+		if (terminal.get(0) && row[word.length()] <= maxDistance)
+			byDistance.get(row[word.length()]).add("");
+		search(0, word, row, maxDistance, new StringBuilder(), byDistance);
+		List<String> result = new ArrayList<>();
+		for (List<String> matches : byDistance) {// a loop
+			result.addAll(matches);
+		}
+		return result;
+	}
+
+	/*
+	 * Visits the children of a node, working out the next row of the distance
+	 * table for each character of a child's label and only going on while some
+	 * distance is in range. Children are visited in order so each list of results
+	 * stays alphabetical.
+	 *
+	 * @param node: the node whose children are visited
+	 *
+	 * @param word: the word looked up
+	 *
+	 * @param previous: the row of the distance table for the node
+	 *
+	 * @param maxDistance: the most edits allowed
+	 *
+	 * @param path: the characters of the node
+	 *
+	 * @param byDistance: matches found, by distance
+	 */
+	private void search(int node, String word, int[] previous, int maxDistance, StringBuilder path,
+			List<List<String>> byDistance) {// O(k) per character visited
+		int first = firstChild[node];
+		int last = first + childCount[node];
+		for (int child = first; child < last; child++) {// a loop
+			int[] row = previous;
+			int length = path.length();
+			boolean inRange = true;
+			for (int at = labelStart(child); at < labelEnd[child] && inRange; at++) {// a loop, a row per character
+				char c = labels[at];
+				int[] next = new int[row.length];
+				next[0] = row[0] + 1;
+				int min = next[0];
+				for (int i = 1; i < next.length; i++) {// a loop
+					int replace = row[i - 1] + (word.charAt(i - 1) == c ? 0 : 1);
+					next[i] = Math.min(Math.min(next[i - 1] + 1, row[i] + 1), replace);
+					min = Math.min(min, next[i]);
+				}
+				path.append(c);
+				row = next;
+				inRange = min <= maxDistance;
+			}
+			if (inRange) {
+				int distance = row[row.length - 1];
+				if (terminal.get(child) && distance <= maxDistance)
+					byDistance.get(distance).add(path.toString());
+				search(child, word, row, maxDistance, path, byDistance);
+			}
+			path.setLength(length);
+		}
+	}
+
+	/*
+	 * Adds words under a node to the result in alphabetical order until the limit
+	 * is reached.
+	 *
+	 * @param node: the node
+	 *
+	 * @param path: the characters of the node
+	 *
+	 * @param result: the words found
+	 *
+	 * @param limit: the most words to find
+	 */
+	private void collect(int node, StringBuilder path, List<String> result, int limit) {// O(r) nodes visited
+		if (terminal.get(node))
+			result.add(path.toString());
+		int first = firstChild[node];
+		int last = first + childCount[node];
+		for (int child = first; child < last && result.size() < limit; child++) {// a loop
+			int length = path.length();
+			path.append(labels, labelStart(child), labelEnd[child] - labelStart(child));
+			collect(child, path, result, limit);
+			path.setLength(length);
+		}
+	}
+
+	/*
+	 * Returns the node whose label the end of a path is in, or -1 if the path is
+	 * not in the trie. The characters of the labels followed, the path and the
+	 * rest of the last label, are added to reached.
+	 *
+	 * @param path: the characters to follow
+	 *
+	 * @param reached: the characters of the node returned
+	 */
+	private int find(String path, StringBuilder reached) {// O(k log a) binary search of children per label
+		int node = 0;
+		while (reached.length() < path.length()) {// a loop, one label at a time
+			int lo = firstChild[node];
+			int hi = lo + childCount[node] - 1;
+			char c = path.charAt(reached.length());
+			node = -1;
+			while (lo <= hi) {// a loop, binary search
+				int mid = (lo + hi) >>> 1;
+				if (labels[labelStart(mid)] < c)
+					lo = mid + 1;
+				else if (labels[labelStart(mid)] > c)
+					hi = mid - 1;
+				else {
+					node = mid;
+					break;
+				}
+			}
+			if (node < 0)
+				return -1;
+			for (int at = labelStart(node); at < labelEnd[node]; at++) {// a loop
+				int i = reached.length();
+				if (i < path.length() && path.charAt(i) != labels[at])
+					return -1;
+				reached.append(labels[at]);
+			}
+		}
+		return node;
+	}
+
+	/*
+	 * Returns where the label of a node starts in labels.
+	 *
+	 * @param node: the node number
+	 */
+	private int labelStart(int node) {// O(1) one action
+		return node == 0 ? 0 : labelEnd[node - 1];
+	}
+}
@@ -0,0 +1,227 @@
+package ie.atu.sw;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The enum Tokenizer lists the ways a line of text can be split into lower case
+ * words of letters only, any other character separating words. Every backend
+ * gives exactly the same words as the original regular expressions, including
+ * the empty first token of a line that starts with a separator.
+ *
+ * SWAR, the default, classifies and lower cases 8 bytes of ASCII at a time in
+ * a long and finds the start and end of words from the bit mask of letters.
+ * SCALAR does the same one character at a time. Both fall back to REGEX for a
+ * line with characters outside ASCII, or in a locale that does not lower case
+ * ASCII to ASCII, as the lower case of such characters may be a letter.
+ *
+ * @author Richard Daly
+ * @version 1
+ * @since Java 19.
+ *
+ * @see IndexSetup#setTokenizer(Tokenizer)
+ */
+public enum Tokenizer {
+	/** the regular expressions [^a-zA-Z] and \s+ of the original tokenizer */
+	REGEX {
+		@Override
+		public String[] tokenize(String line) {// O(n) where n is the length of the line
+			return SPACES.split(NON_LETTERS.matcher(line.toLowerCase().trim()).replaceAll(" "));
+		}
+	},
+	/** one character at a time, ASCII only */
+	SCALAR {
+		@Override
+		public String[] tokenize(String line) {// O(n) due to loop
+			if (!asciiLowerCase())
+				return REGEX.tokenize(line);
+			int start = 0;
+			int end = line.length();
+			while (start < end && line.charAt(start) <= ' ') {// a loop, as String.trim
+				start++;
+			}
+			while (end > start && line.charAt(end - 1) <= ' ') {// a loop
+				end--;
+			}
+			if (start == end)
+				return EMPTY_LINE.clone();
+
+			List<String> words = new ArrayList<>();
+			char[] lower = new char[end - start];
+			int wordStart = -1;
+			for (int i = start; i < end; i++) {// a loop
+				char c = line.charAt(i);
+				if (c >= 0x80)
+					return REGEX.tokenize(line);
+				char folded = (char) (c | 0x20);
+				if (folded >= 'a' && folded <= 'z') {
+					lower[i - start] = folded;
+					if (wordStart < 0)
+						wordStart = i - start;
+				} else if (wordStart >= 0) {
+					words.add(new String(lower, wordStart, i - start - wordStart));
+					wordStart = -1;
+				}
+			}
+			if (wordStart >= 0)
+				words.add(new String(lower, wordStart, end - start - wordStart));
+			return toArray(words, isLetter(line.charAt(start)));
+		}
+	},
+	/** 8 bytes at a time in a long, ASCII only, the default */
+	SWAR {
+		@Override
+		public String[] tokenize(String line) {// O(n / 8) blocks, O(n) to copy the words
+			if (!asciiLowerCase())
+				return REGEX.tokenize(line);
+			byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);// a character above 0xFF becomes '?'
+			if (bytes.length != line.length())
+				return REGEX.tokenize(line);// a surrogate pair became one '?'
+			int start = 0;
+			int end = bytes.length;
+			while (start < end && (bytes[start] & 0xFF) <= ' ') {// a loop, as String.trim
+				start++;
+			}
+			while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {// a loop
+				end--;
+			}
+			if (start == end)
+				return EMPTY_LINE.clone();
+
+			List<String> words = new ArrayList<>();
+			boolean inWord = false;
+			int wordStart = 0;
+			int i = start;
+			for (; i + Long.BYTES <= end; i += Long.BYTES) {// a loop, one block of 8 bytes
+				long block = (long) LONGS.get(bytes, i);
+				if ((block & HIGH_BITS) != 0 || hasSubstitutes(line, bytes, i, block))
+					return REGEX.tokenize(line);
+				long folded = block | CASE_BITS;
+				long letters = (folded + BELOW_A) & ~(folded + ABOVE_Z) & HIGH_BITS;// high bit of each letter
+				LONGS.set(bytes, i, block | (letters >>> 2));// lower cases the letters only
+
+				long rest = HIGH_BITS;// bytes of the block not yet looked at
+				for (;;) {// a loop, once for each start or end of a word
+					long next = (inWord ? ~letters : letters) & rest;
+					if (next == 0)
+						break;
+					long lowest = next & -next;
+					int at = i + (Long.numberOfTrailingZeros(lowest) >>> 3);
+					if (inWord)
+						words.add(new String(bytes, wordStart, at - wordStart, StandardCharsets.ISO_8859_1));
+					else
+						wordStart = at;
+					inWord = !inWord;
+					rest &= -(lowest << 1);
+				}
+			}
+			for (; i < end; i++) {// a loop, the last bytes of the line
+				int b = bytes[i] & 0xFF;
+				if (b >= 0x80 || (b == '?' && line.charAt(i) != '?'))
+					return REGEX.tokenize(line);
+				int folded = b | 0x20;
+				boolean letter = folded >= 'a' && folded <= 'z';
+				if (letter) {
+					bytes[i] = (byte) folded;
+					if (!inWord)
+						wordStart = i;
+				} else if (inWord) {
+					words.add(new String(bytes, wordStart, i - wordStart, StandardCharsets.ISO_8859_1));
+				}
+				inWord = letter;
+			}
+			if (inWord)
+				words.add(new String(bytes, wordStart, end - wordStart, StandardCharsets.ISO_8859_1));
+			return toArray(words, isLetter(line.charAt(start)));
+		}
+	};
+
+	private static final Pattern NON_LETTERS = Pattern.compile("[^a-zA-Z]");// replaced by spaces
+	private static final Pattern SPACES = Pattern.compile("\\s+");// separates words
+	private static final String[] EMPTY_LINE = { "" };// tokens of a blank line
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);// reads and writes 8 bytes of an array as a long
+	private static final long HIGH_BITS = 0x8080808080808080L;// the high bit of every byte
+	private static final long CASE_BITS = 0x2020202020202020L;// the bit that lower cases an ASCII letter
+	private static final long BELOW_A = 0x1F1F1F1F1F1F1F1FL;// sets the high bit of bytes from 'a'
+	private static final long ABOVE_Z = 0x0505050505050505L;// sets the high bit of bytes after 'z'
+	private static final long ONES = 0x0101010101010101L;// 1 in every byte
+	private static final long QUESTION_MARKS = 0x3F3F3F3F3F3F3F3FL;// '?' in every byte
+
+	/**
+	 * Tokenizes a line of text into lower case words of letters only. Any other
+	 * character separates words. The first token is empty if the line starts with
+	 * a separator, a blank line has one empty token and a line of separators none.
+	 *
+	 * @param line the line as read
+	 * @return String[] of words
+	 */
+	public abstract String[] tokenize(String line);
+
+	/*
+	 * Returns true if the default locale lower cases ASCII to ASCII, not the case
+	 * for 'I' in Turkish and Azerbaijani.
+	 */
+	private static boolean asciiLowerCase() {// O(1) one action
+		String language = Locale.getDefault().getLanguage();
+		return !language.equals("tr") && !language.equals("az");
+	}
+
+	/*
+	 * Returns true if a '?' in a block of bytes stands for a character above 0xFF
+	 * that could not be encoded, rather than a question mark.
+	 *
+	 * @param line: the line the bytes were encoded from
+	 *
+	 * @param bytes: the encoded line
+	 *
+	 * @param i: the index of the block
+	 *
+	 * @param block: the 8 bytes of the block
+	 */
+	private static boolean hasSubstitutes(String line, byte[] bytes, int i, long block) {// O(1) 8 bytes at most
+		long marks = block ^ QUESTION_MARKS;// a zero byte for every '?'
+		if (((marks - ONES) & ~marks & HIGH_BITS) == 0)
+			return false;
+		for (int j = i; j < i + Long.BYTES; j++) {// a loop
+			if (bytes[j] == '?' && line.charAt(j) != '?')
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Returns true if a character is an ASCII letter.
+	 *
+	 * @param c: the character
+	 */
+	private static boolean isLetter(char c) {// O(1) one action
+		char folded = (char) (c | 0x20);
+		return folded >= 'a' && folded <= 'z';
+	}
+
+	/*
+	 * Returns the words of a line as the regular expressions split it: with an
+	 * empty first token if the line starts with a separator and has any words.
+	 *
+	 * @param words: the words found
+	 *
+	 * @param startsWithLetter: true if the trimmed line starts with a letter
+	 */
+	private static String[] toArray(List<String> words, boolean startsWithLetter) {// O(w) copy of the words
+		if (startsWithLetter || words.isEmpty())
+			return words.toArray(String[]::new);
+		String[] tokens = new String[words.size() + 1];
+		tokens[0] = "";
+		for (int i = 0; i < words.size(); i++) {// a loop
+			tokens[i + 1] = words.get(i);
+		}
+		return tokens;
+	}
+}
@@ -1,12 +1,17 @@
 package ie.atu.sw;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * The class WordDetail associates a word with a definition and the pages it
  * occurs on. It has suite of methods to get/set and return boolean values on
- * the information it contains.
+ * the information it contains. In a positional index it also holds the line and
+ * word offset of each occurrence, from which its pages are derived. Pages are
+ * kept in a primitive array, four bytes an occurrence, rather than a list of
+ * boxed Integers.
  * 
  * @author Richard Daly
  * @version 1
@@ -16,7 +21,9 @@ import java.util.List;
 public class WordDetail {
 	private String word;// word the class relates to
 	private String definition;// definition of the word
-	private List<Integer> pages = new ArrayList<>();// pages the word occurs on
+	private int[] pages = new int[1];// pages the word occurs on, in order
+	private int pageCount;// occurrences in pages
+	private PositionList positions;// positions the word occurs at, positional index only
 
 	/**
 	 * Sole Constructor of the class, creates a new instance of the class with an
@@ -44,7 +51,43 @@ public class WordDetail {
 	 * @return true if unique / false if not unique
 	 */
 	public boolean isUnique() {// O(1) one action only
-		return pages.size() == 1 ? true : false;
+		return pageCount == 1 ? true : false;
+	}
+
+	/**
+	 * Gets a copy of the word detail, its pages and positions copied so it can be
+	 * changed without changing this one.
+	 * 
+	 * @return WordDetail copy
+	 */
+	public WordDetail copy() {// O(p) where p is the amount of pages and positions
+		var copy = new WordDetail(word);
+		copy.definition = definition;
+		copy.pages = Arrays.copyOf(pages, Math.max(1, pageCount));
+		copy.pageCount = pageCount;
+		if (positions != null) {
+			for (long position : positions.toArray()) {// a loop
+				copy.addPosition(PositionList.line(position), PositionList.offset(position));
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Adds the pages and positions of another detail of the word, which must all
+	 * come after the pages and positions of this one.
+	 * 
+	 * @param later the word detail to add
+	 */
+	public void append(WordDetail later) {// O(p) where p is the amount of pages and positions added
+		for (int i = 0; i < later.pageCount; i++) {// a loop
+			addPage(later.pages[i]);
+		}
+		if (later.positions != null) {
+			for (long position : later.positions.toArray()) {// a loop
+				addPosition(PositionList.line(position), PositionList.offset(position));
+			}
+		}
 	}
 
 	/**
@@ -71,18 +114,77 @@ public class WordDetail {
 	 * 
 	 * @param page the page number
 	 */
-	public void addPage(int page) {// O(1) one action only
-		pages.add(page);// O(1) ArrayList action
+	public void addPage(int page) {// O(1) amortised, array doubles when full
+		if (pageCount == pages.length)
+			pages = Arrays.copyOf(pages, pageCount * 2);
+		pages[pageCount++] = page;
 	}
 
 	/**
-	 * Gets a copy of the List of pages the word occurs on.
+	 * Replaces the occurrences of the word on one page, keeping the pages in
+	 * order. Pages must have been added in order.
+	 * 
+	 * @param page        the page number
+	 * @param occurrences the number of times the word now occurs on the page, 0
+	 *                    to remove the page
+	 */
+	public void replacePage(int page, int occurrences) {// O(p) where p is the amount of pages
+		int from = firstIndexOf(page);// O(log p)
+		int to = firstIndexOf(page + 1);// O(log p)
+		int count = pageCount - (to - from) + occurrences;
+		int[] replaced = count > pages.length ? new int[count] : pages;
+		System.arraycopy(pages, 0, replaced, 0, from);// O(p)
+		System.arraycopy(pages, to, replaced, from + occurrences, pageCount - to);// O(p)
+		Arrays.fill(replaced, from, from + occurrences, page);
+		pages = replaced;
+		pageCount = count;
+	}
+
+	/*
+	 * Returns the index of the first page in the list that is not less than a page
+	 * number, a binary search.
+	 * 
+	 * @param page: the page number
+	 */
+	private int firstIndexOf(int page) {// O(log p) binary search
+		int low = 0;
+		int high = pageCount;
+		while (low < high) {// a loop
+			int mid = (low + high) >>> 1;
+			if (pages[mid] < page)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Gets a read only view of the List of pages the word occurs on, once for each
+	 * occurrence in order.
 	 * 
 	 * @return List of page numbers
 	 */
-	public List<Integer> getPages() {// O(1) direct copy of list
-		var copy = pages;
-		return copy;
+	public List<Integer> getPages() {// O(1) creates a view only
+		return new Pages();
+	}
+
+	/*
+	 * A read only list of the pages of the word, each boxed when it is read.
+	 */
+	private class Pages extends AbstractList<Integer> implements RandomAccess {
+
+		@Override
+		public Integer get(int i) {// O(1) one action
+			if (i < 0 || i >= pageCount)
+				throw new IndexOutOfBoundsException(i);
+			return pages[i];
+		}
+
+		@Override
+		public int size() {// O(1) one action
+			return pageCount;
+		}
 	}
 
 	/**
@@ -95,4 +197,44 @@ public class WordDetail {
 		return copy;
 	}
 
+	/**
+	 * Adds a position to the positions the word occurs at. Positions must be added
+	 * in order.
+	 * 
+	 * @param line   the line number
+	 * @param offset the word offset on the line
+	 * @see PositionList#add(int, int)
+	 */
+	public void addPosition(int line, int offset) {// O(1) amortised PositionList action
+		if (positions == null)
+			positions = new PositionList();
+		positions.add(line, offset);
+	}
+
+	/**
+	 * Gets the positions the word occurs at.
+	 * 
+	 * @return PositionList of positions, null if the index is not positional
+	 */
+	public PositionList getPositions() {// O(1) one action only
+		return positions;
+	}
+
+	/**
+	 * Replaces the pages the word occurs on with pages derived from its positions,
+	 * one page for each position.
+	 * 
+	 * @param model the page model to use
+	 * @param lines the lines of the text the positions refer to
+	 */
+	public void repaginate(PageModel model, LineTable lines) {// O(n) where n is the amount of positions
+		long[] all = positions == null ? new long[0] : positions.toArray();// O(n)
+		int[] derived = new int[Math.max(1, all.length)];
+		for (int i = 0; i < all.length; i++) {// a loop
+			derived[i] = model.pageOf(PositionList.line(all[i]), lines);// O(1)
+		}
+		pages = derived;
+		pageCount = all.length;
+	}
+
 }